@@ -0,0 +1,127 @@
+/**
+ * The elements currently on screen, shared by the simulation (which adds and
+ * removes them) and the drawing (which reads them), keyed by element id; each
+ * element's index in the map's HitObjects.
+ *
+ * Elements appear in increasing order of id, so each element is kept in the
+ * slot of a ring given by its id. Adding one just fills the next slot, removing
+ * one just empties its slot, and looking one up by id is a single index, all
+ * without searching. Going from getFirstId() to getEndId() visits the
+ * elements in the order they appeared, skipping any already removed.
+ *
+ * Like the rest of a game, this is only used by one thread at a time.
+ *
+ * @author Robert Campbell
+ */
+public class ActiveElements {
+	// The starting number of slots; must be a power of two
+	private static final int INITIAL_CAPACITY = 64;
+
+	// The elements, each at the slot (id & mask); null where removed
+	private Element[] slots = new Element[INITIAL_CAPACITY];
+	private int mask = INITIAL_CAPACITY - 1;
+	// The id of the oldest element still active, and one past the newest
+	private int firstId = 0;
+	private int endId = 0;
+	// The number of elements still active
+	private int count = 0;
+
+	/**
+	 * Adds an element, which must have a greater id than the last one added (or
+	 * any id, if there are none active); ids can be skipped, but not used out of order.
+	 * @param element The element to add.
+	 */
+	public void add(Element element){
+		int id = element.getId();
+		if(count == 0){
+			firstId = id;
+			endId = id;
+		}
+		else if(id < endId){
+			throw new IllegalArgumentException("Element " + id + " added out of order; expected at least " + endId);
+		}
+
+		// If the oldest element is a whole ring behind, make room; this only happens while a long slider is held up
+		while(id - firstId >= slots.length) grow();
+
+		slots[id & mask] = element;
+		endId = id + 1;
+		count++;
+	}
+
+	/**
+	 * Removes the element with the given id.
+	 * @return Whether it was active; false if it was never added or has already been removed.
+	 */
+	public boolean remove(int id){
+		if(get(id) == null) return false;
+
+		slots[id & mask] = null;
+		count--;
+		// Move past any removed elements at the start, so they aren't visited again
+		while(firstId < endId && slots[firstId & mask] == null){
+			firstId++;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the active element with the given id, or null if it isn't active.
+	 */
+	public Element get(int id){
+		if(id < firstId || id >= endId) return null;
+		return slots[id & mask];
+	}
+
+	/**
+	 * Returns the id of the oldest active element; where to start going through them.
+	 */
+	public int getFirstId(){
+		return firstId;
+	}
+
+	/**
+	 * Returns one past the id of the newest active element; where to stop going through them.
+	 */
+	public int getEndId(){
+		return endId;
+	}
+
+	/**
+	 * Returns the number of active elements.
+	 */
+	public int size(){
+		return count;
+	}
+
+	/**
+	 * Returns whether there are no active elements.
+	 */
+	public boolean isEmpty(){
+		return count == 0;
+	}
+
+	/**
+	 * Removes every element.
+	 */
+	public void clear(){
+		for(int i = 0; i < slots.length; i++){
+			slots[i] = null;
+		}
+		firstId = endId;
+		count = 0;
+	}
+
+	/**
+	 * Doubles the number of slots, moving each element to its slot in the new ring.
+	 */
+	private void grow(){
+		Element[] newSlots = new Element[slots.length * 2];
+		int newMask = newSlots.length - 1;
+		for(int id = firstId; id < endId; id++){
+			newSlots[id & newMask] = slots[id & mask];
+		}
+		slots = newSlots;
+		mask = newMask;
+	}
+}
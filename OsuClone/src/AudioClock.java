@@ -0,0 +1,136 @@
+/**
+ * A map clock which follows the map's audio, so that the elements of the
+ * map stay in time with the music however long the audio takes to start,
+ * to pause and resume, or to catch up after the game stalls.
+ *
+ * The audio's position is only reported coarsely and unevenly, so the
+ * clock runs off the system clock and is nudged towards the audio, which
+ * is measured a few times a second: small
+ * differences are averaged and corrected gradually, with the map time
+ * running at most a few percent fast or slow, and only large ones (such as
+ * when the audio starts) are corrected all at once.
+ *
+ * @author Robert Campbell
+ */
+public class AudioClock extends SystemClock {
+	// The difference (ms) from the audio above which the map time is corrected all at once
+	private static final double RESYNC_DRIFT = 100;
+	// How much of each new difference goes into the average (0-1)
+	private static final double SMOOTHING = 0.2;
+	// The most the map time can be sped up or slowed down by while correcting (fraction of real time)
+	private static final double MAX_CORRECTION_RATE = 0.05;
+	// How long (ns) after seeking or resuming the audio to ignore its position, as it can lag behind for a while
+	private static final long SETTLE_TIME = 250000000;
+	// The time (ns) between measurements of the audio's position
+	private static final long MEASURE_INTERVAL = 20000000;
+
+	// The time within the audio (ms) at which the map starts
+	private final int audioStartTime;
+
+	// The system time of the last correction, or 0 if there hasn't been one since settling
+	private long lastUpdate = 0;
+	// The system time until which the audio's position is ignored
+	private long settleUntil = 0;
+	// The average difference between the map time and the audio, not yet corrected
+	private double smoothedDrift = 0;
+
+	// Measurements of the difference between the map time and the audio, before correcting
+	private int driftCount = 0;
+	private double totalDrift = 0;
+	private double maxDrift = 0;
+	private int resyncCount = 0;
+
+	/**
+	 * Constructor; instantiates AudioClock.
+	 * @param audioStartTime The time (ms) within the audio at which the map starts.
+	 */
+	public AudioClock(int audioStartTime){
+		this.audioStartTime = audioStartTime;
+	}
+
+	@Override
+	public void update(long nanoTime){
+		if(nanoTime - settleUntil < 0) return;
+		if(lastUpdate != 0 && nanoTime - lastUpdate < MEASURE_INTERVAL) return;
+
+		double audioTime = AudioPlayer.getLongAudioTime(nanoTime);
+		if(audioTime < 0) return;
+
+		// How far behind (negative) or ahead (positive) of the map time the audio is
+		double drift = (audioTime - audioStartTime) - getMapTime(nanoTime);
+		recordDrift(drift);
+
+		if(Math.abs(drift) > RESYNC_DRIFT){
+			adjust(drift);
+			smoothedDrift = 0;
+			resyncCount++;
+		}
+		else{
+			smoothedDrift += (drift - smoothedDrift) * SMOOTHING;
+
+			// Correct some of it, no faster than the maximum rate
+			double maxCorrection = lastUpdate == 0 ? 0 : (nanoTime - lastUpdate) / 1e6 * MAX_CORRECTION_RATE;
+			double correction = Math.max(-maxCorrection, Math.min(maxCorrection, smoothedDrift));
+			adjust(correction);
+			smoothedDrift -= correction;
+		}
+		lastUpdate = nanoTime;
+	}
+
+	/**
+	 * Records a measured difference between the map time and the audio.
+	 */
+	private void recordDrift(double drift){
+		driftCount++;
+		totalDrift += Math.abs(drift);
+		maxDrift = Math.max(maxDrift, Math.abs(drift));
+	}
+
+	/**
+	 * Ignores the audio for a short while, and forgets what was being corrected.
+	 */
+	private void settle(){
+		settleUntil = System.nanoTime() + SETTLE_TIME;
+		lastUpdate = 0;
+		smoothedDrift = 0;
+	}
+
+	@Override
+	public void start(){
+		super.start();
+		settle();
+	}
+
+	@Override
+	public void resume(){
+		super.resume();
+		settle();
+	}
+
+	@Override
+	public void skip(double time){
+		super.skip(time);
+		AudioPlayer.seekLongAudio(audioStartTime + getMapTime(System.nanoTime()));
+		settle();
+	}
+
+	/**
+	 * Returns the greatest difference (ms) measured between the map time and the audio.
+	 */
+	public double getMaxDrift(){
+		return maxDrift;
+	}
+
+	/**
+	 * Returns the average difference (ms) measured between the map time and the audio.
+	 */
+	public double getAverageDrift(){
+		return driftCount == 0 ? 0 : totalDrift / driftCount;
+	}
+
+	@Override
+	public String getReport(){
+		return String.format("Map time followed the audio; %d measurements, %.1f ms apart on average, at most %.1f ms, resynced %d times",
+				driftCount, getAverageDrift(), getMaxDrift(), resyncCount);
+	}
+}
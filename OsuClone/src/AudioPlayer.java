@@ -1,45 +1,128 @@
 import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.DataLine;
-import javax.sound.sampled.FloatControl;
+import javax.sound.sampled.LineUnavailableException;
 
 import javafx.scene.media.Media;
+import javafx.scene.media.MediaException;
 import javafx.scene.media.MediaPlayer;
 import javafx.util.Duration;
 
 /**
  * Handles playing all sounds for MyOsu, statically.
- * Due to technical constraints, only one clip and
- * one media player (long audio) may be played at
- * any given time, but this is sufficient for the
- * purposes of this game.
+ * Due to technical constraints, only one media player
+ * (long audio) may be played at any given time, but
+ * this is sufficient for the purposes of this game.
+ * Any number of short clips can play at once.
+ * 
+ * The media player is only ever touched by one thread, the
+ * audio thread. Everything done to the long audio is sent to
+ * it as a command and done in order, so callers never wait on
+ * the media player; they get a future which completes once it
+ * has been done instead.
  * 
  * @author Robert Campbell
  */
 public class AudioPlayer {
-	// The currently playing long audio
+	// The most commands which can be waiting for the audio thread; past this, commands are refused
+	private static final int MAX_COMMANDS = 32;
+	// How often (ms) the audio thread checks the position of the long audio, when it has nothing else to do
+	private static final int POSITION_INTERVAL = 5;
+	
+	// The most long audio files kept loaded, ready to play, besides the current one
+	private static final int MAX_PREPARED = 3;
+	
+	// The currently playing long audio, and its key (see getKey); only used by the audio thread
 	private static MediaPlayer currentAudio = null;
+	private static String currentKey = null;
+	// Long audio which has been loaded ahead of time, or played recently, by key, least
+	// recently used first; only used by the audio thread
+	private static final LinkedHashMap<String, MediaPlayer> prepared = new LinkedHashMap<String, MediaPlayer>(16, 0.75f, true);
+	
+	// Commands waiting for the audio thread
+	private static final BlockingQueue<Runnable> commands = new ArrayBlockingQueue<Runnable>(MAX_COMMANDS);
+	// The number of times long audio has been asked to load; only the latest is actually loaded
+	private static final AtomicInteger loadRequests = new AtomicInteger();
 	
-	// The currently playing audio clip
-	private static Clip currentClip = null;
+	// The position of the long audio, as last checked by the audio thread; replaced
+	// as a whole, so the position and the time it was checked at are always read together
+	private static volatile AudioPosition audioPosition = new AudioPosition(-1, 0);
+	
+	// Short audio clips, decoded, and the mixer which plays them; started when the first clip is loaded
+	private static SampleBank sampleBank = new SampleBank();
+	private static volatile SoundMixer mixer = null;
+	private static boolean mixerFailed = false;
+	
+	static{
+		Thread audioThread = new Thread(new Runnable(){
+			public void run(){
+				runCommands();
+			}
+		}, "Audio");
+		audioThread.setDaemon(true);
+		audioThread.start();
+	}
 	
 	/**
-	 * Plays an audio file until stopLongAudio(fname) is called.
-	 * Should be used only for long audio files.
-	 * 
-	 * @param fname The filename to load the audio from.
-	 * @param startTime The time within the audio file to start at (ms).
-	 * @param volume The volume of the audio; 0.5 is a reasonable volume.
+	 * Runs commands as they come, forever, keeping track of where the long audio is up to in between
 	 */
-	public static void playLongAudio(String fname, int startTime, double volume, Game game){
-		// If no filename is given, don't do anything...
-		if(fname == null) return;
-		playLongAudio(fname, startTime, volume);
-		game.audioInitialised = true;
+	private static void runCommands(){
+		while(true){
+			try{
+				Runnable command = commands.poll(POSITION_INTERVAL, TimeUnit.MILLISECONDS);
+				if(command != null) command.run();
+			}
+			catch(InterruptedException e){
+				return;
+			}
+			// Nothing that goes wrong with the audio should stop it for good
+			catch(RuntimeException e){
+				System.err.println("Audio command failed. " + e);
+			}
+			
+			checkPosition();
+		}
+	}
+	
+	/**
+	 * Records the position of the long audio
+	 */
+	private static void checkPosition(){
+		double position = -1;
+		if(currentAudio != null && currentAudio.getStatus() == MediaPlayer.Status.PLAYING)
+			position = currentAudio.getCurrentTime().toMillis();
+		
+		audioPosition = new AudioPosition(position, System.nanoTime());
+	}
+	
+	/**
+	 * Has the audio thread run the given command.
+	 * @return A future which completes once it has been run; exceptionally if there
+	 *         were too many commands waiting, or if the command failed.
+	 */
+	private static CompletableFuture<Void> submit(Runnable command){
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
+		boolean accepted = commands.offer(new Runnable(){
+			public void run(){
+				try{
+					command.run();
+					done.complete(null);
+				}
+				catch(RuntimeException e){
+					done.completeExceptionally(e);
+				}
+			}
+		});
+		if(!accepted) done.completeExceptionally(new RejectedExecutionException("Too many audio commands waiting"));
+		return done;
 	}
 	
 	/**
@@ -54,128 +137,324 @@ public class AudioPlayer {
 	public static void playLongAudio(String fname, int startTime, double volume){
 		if(fname == null) return;
 		
-		// If there is already a long audio currently playing, stop it
-		if(currentAudio != null){
-			currentAudio.stop();
-		}
+		loadLongAudio(fname, startTime, volume);
+		startLongAudio();
+	}
+	
+	/**
+	 * Loads an audio file, ready to be played by startLongAudio().
+	 * Should only be used for long audio files. Any long audio
+	 * which is currently playing is stopped and put aside, in
+	 * case it is wanted again. If the audio has been prepared
+	 * by prefetchLongAudio, it is ready straight away.
+	 * 
+	 * If this is called again before the audio thread has got to
+	 * it, only the latest audio is loaded; the earlier ones are
+	 * cancelled without ever being opened.
+	 * 
+	 * @param fname The filename to load the audio from; may be null, for no audio.
+	 * @param startTime The time within the audio file to start at (ms).
+	 * @param volume The volume of the audio; 0.5 is a reasonable volume.
+	 * @return A future which completes once the audio is ready to play, or
+	 *         exceptionally if it can't be played or was replaced.
+	 */
+	public static CompletableFuture<Void> loadLongAudio(String fname, int startTime, double volume){
+		CompletableFuture<Void> ready = new CompletableFuture<Void>();
+		int request = loadRequests.incrementAndGet();
 		
-		// Build the media player and add it to the map
+		CompletableFuture<Void> submitted = submit(new Runnable(){
+			public void run(){
+				// Another load has been asked for since, so this one isn't needed
+				if(request != loadRequests.get()){
+					ready.completeExceptionally(new CancellationException("Replaced by another audio file"));
+					return;
+				}
+				
+				// Put the current long audio aside, in case it's wanted again
+				if(currentAudio != null){
+					prepare(currentKey, currentAudio);
+					currentAudio = null;
+					currentKey = null;
+				}
+				
+				if(fname == null){
+					ready.complete(null);
+					return;
+				}
+				
+				try{
+					currentKey = getKey(fname, startTime);
+					currentAudio = prepared.remove(currentKey);
+					if(currentAudio == null) currentAudio = createPlayer(fname, startTime);
+					MediaPlayer audioPlayer = currentAudio;
+					
+					// JavaFX lets us know once it has loaded the audio
+					audioPlayer.setOnReady(new Runnable(){
+						public void run(){
+							ready.complete(null);
+						}
+					});
+					audioPlayer.setOnError(new Runnable(){
+						public void run(){
+							ready.completeExceptionally(audioPlayer.getError());
+						}
+					});
+					// In case it was loaded ahead of time, or became ready before we were listening;
+					// anything past UNKNOWN means it has loaded, and HALTED that it failed to
+					MediaPlayer.Status status = audioPlayer.getStatus();
+					if(status == MediaPlayer.Status.HALTED) ready.completeExceptionally(audioPlayer.getError());
+					else if(status != MediaPlayer.Status.UNKNOWN) ready.complete(null);
+				}
+				catch(MediaException e){
+					currentKey = null;
+					ready.completeExceptionally(e);
+				}
+			}
+		});
+		// If the command never gets run, neither will the audio load
+		submitted.whenComplete((v, e) -> { if(e != null) ready.completeExceptionally(e); });
+		return ready;
+	}
+	
+	/**
+	 * Loads an audio file ahead of time, so that a later loadLongAudio of the
+	 * same file and start time is ready straight away. Only the few most
+	 * recently prepared (or played) files are kept loaded.
+	 * 
+	 * @param fname The filename to load the audio from.
+	 * @param startTime The time within the audio file it will be started at (ms).
+	 * @return A future which completes once it has started loading.
+	 */
+	public static CompletableFuture<Void> prefetchLongAudio(String fname, int startTime){
+		return submit(new Runnable(){
+			public void run(){
+				if(fname == null) return;
+				
+				String key = getKey(fname, startTime);
+				if(key.equals(currentKey)) return;
+				// Getting it marks it as recently used
+				if(prepared.get(key) != null) return;
+				
+				try{
+					prepare(key, createPlayer(fname, startTime));
+				}
+				catch(MediaException e){
+					System.err.println("Could not load audio file '"+fname+"'. " + e);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Returns the key of an audio file started at a certain time, for the prepared players.
+	 */
+	private static String getKey(String fname, int startTime){
+		return fname + "@" + startTime;
+	}
+	
+	/**
+	 * Creates a media player for an audio file, which starts loading straight away.
+	 */
+	private static MediaPlayer createPlayer(String fname, int startTime){
 		File file = new File(fname);
 		Media media = new Media(file.toURI().toString());
 		MediaPlayer audioPlayer = new MediaPlayer(media);
 		
-		currentAudio = audioPlayer;
-		
 		audioPlayer.setVolume(0.1);
 		audioPlayer.setStartTime(new Duration(startTime));
-		audioPlayer.play();
+		return audioPlayer;
 	}
 	
 	/**
-	 * Pauses the long audio file which is currently being played.
-	 * If no long audio file is currently being played, does nothing
-	 * but returns false.
-	 * 
-	 * @return Whether or not pausing the audio succeeded.
+	 * Keeps a stopped media player ready to play, throwing away the least
+	 * recently used ones so that there are never more than MAX_PREPARED.
 	 */
-	public static boolean pauseLongAudio(){
-		// Check to see if the audio is currently playing:
+	private static void prepare(String key, MediaPlayer audioPlayer){
+		// Stopping goes back to the start time
+		audioPlayer.stop();
+		audioPlayer.setOnReady(null);
+		audioPlayer.setOnError(null);
 		
-		// If not, don't do anything but return false
-		if(currentAudio == null){
-			return false;
-		}
+		MediaPlayer replaced = prepared.put(key, audioPlayer);
+		if(replaced != null && replaced != audioPlayer) replaced.dispose();
 		
-		// If so, pause it
-		currentAudio.pause();
-		return true;
+		Iterator<MediaPlayer> iter = prepared.values().iterator();
+		while(prepared.size() > MAX_PREPARED){
+			// Disposing frees its native resources
+			iter.next().dispose();
+			iter.remove();
+		}
+	}
+	
+	/**
+	 * Starts playing the long audio file loaded by loadLongAudio.
+	 * It can be started before it has finished loading, in which
+	 * case it plays as soon as it has.
+	 * 
+	 * @return A future which completes once it has been started.
+	 */
+	public static CompletableFuture<Void> startLongAudio(){
+		return submit(new Runnable(){
+			public void run(){
+				if(currentAudio != null) currentAudio.play();
+			}
+		});
+	}
+	
+	/**
+	 * Pauses the long audio file which is currently being played.
+	 * If no long audio file is currently being played, does nothing.
+	 * 
+	 * @return A future which completes once it has been paused.
+	 */
+	public static CompletableFuture<Void> pauseLongAudio(){
+		return submit(new Runnable(){
+			public void run(){
+				if(currentAudio != null) currentAudio.pause();
+			}
+		});
 	}
 	
 	/**
 	 * Resumes the audio file if it has been paused by 
 	 * pauseLongAudio. If it has not, or if there is
 	 * no long audio currently playing, does nothing.
+	 * 
+	 * @return A future which completes once it has been resumed.
 	 */
-	public static void resumeLongAudio(){
-		// Check to see if there is any audio active;
-		// if not, just don't do anything.
-		if(currentAudio == null)
-			return;
-		
+	public static CompletableFuture<Void> resumeLongAudio(){
 		// This will not do anything if the audio is not paused.
-		currentAudio.play();
+		return startLongAudio();
+	}
+	
+	/**
+	 * Returns the position (ms) within the long audio file which is currently
+	 * being played, as of the given system time, or -1 if there isn't one playing
+	 * (including while it is paused or still starting). The position is checked
+	 * every few ms by the audio thread, and worked out from there.
+	 * 
+	 * @param nanoTime The system time (System.nanoTime()) to give the position at.
+	 */
+	public static double getLongAudioTime(long nanoTime){
+		// Read once, so that the position and the time it was checked at match
+		AudioPosition checked = audioPosition;
+		if(checked.position < 0) return -1;
+		
+		return checked.position + (nanoTime - checked.time) / 1e6;
+	}
+	
+	/**
+	 * Moves the long audio file which is currently being played to the
+	 * given position. Does nothing if no audio file is currently playing.
+	 * 
+	 * @param time The position (ms) within the audio file to move to.
+	 * @return A future which completes once it has been moved.
+	 */
+	public static CompletableFuture<Void> seekLongAudio(double time){
+		return submit(new Runnable(){
+			public void run(){
+				if(currentAudio != null) currentAudio.seek(new Duration(time));
+			}
+		});
 	}
 	
 	/**
 	 * Stops the currently playing long audio file.
 	 * Does nothing if no audio file is currently playing.
 	 * 
-	 * @return Whether or not stopping the audio succeeded.
+	 * @return A future which completes once it has been stopped.
 	 */
-	public static boolean stopLongAudio(String fname){
-		// If there is no audio currently playing, don't do anything
-		if(currentAudio == null)
-			return false;
-		
-		currentAudio.stop();
-		return true;
+	public static CompletableFuture<Void> stopLongAudio(String fname){
+		return submit(new Runnable(){
+			public void run(){
+				if(currentAudio != null) currentAudio.stop();
+			}
+		});
 	}
 	
 	/**
-	 * Plays a *short* audio file. This should not be used
-	 * for audio over a few seconds long.
+	 * Loads a *short* audio file so that it can be played with playClip(id, volume);
+	 * it is decoded now, so that playing it later takes no time. Loading the same
+	 * file again just gives the same id.
 	 * 
-	 * @param fname The filename of the audio to be played.
-	 * @param volume The volume of the audio to be played.
-	 * @return Whether or not the audio clip was played.
+	 * @param fname The filename of the audio.
+	 * @return The id to play the audio by.
 	 */
-	public static boolean playClip(String fname, float volume){
-		if(fname == null) return false;
-		
-		// Stop the current clip if there is one
-		if(currentClip != null){
-			currentClip.stop();
-			currentClip = null;
-		}
+	public static int loadClip(String fname){
+		int id = sampleBank.load(fname);
+		startMixer();
+		return id;
+	}
+	
+	/**
+	 * Starts the mixer which plays clips, if it hasn't been already.
+	 */
+	private static synchronized void startMixer(){
+		if(mixer != null || mixerFailed) return;
 		
-		// Attempt to initialise the audio clip
-		AudioInputStream inputStream = null;
 		try{
-			inputStream = AudioSystem.getAudioInputStream(new File(fname));
-			AudioFormat decodedFormat = inputStream.getFormat();
-
-			DataLine.Info audioInfo = new DataLine.Info(Clip.class, decodedFormat);
-			currentClip = (Clip) AudioSystem.getLine(audioInfo);
-		}
-		catch(Exception e){
-			e.printStackTrace();
-			System.err.println("Could not get input stream for audio clip. " + e);
-		}
-
-		try{
-			if(inputStream == null) return false;
-			currentClip.open(inputStream);
-			
-			FloatControl volumeControl = (FloatControl)currentClip.getControl(FloatControl.Type.MASTER_GAIN);
-			volumeControl.setValue(volume);
-			
-			currentClip.start();
+			mixer = new SoundMixer(sampleBank);
 		}
-		catch(Exception e){
-			e.printStackTrace();
-			System.err.println("Couldn't play audio clip! " + e);
+		catch(LineUnavailableException | IllegalArgumentException e){
+			mixerFailed = true;
+			System.err.println("Could not open an audio line for sound effects; they will not be played. " + e);
 		}
+	}
+	
+	/**
+	 * Plays a *short* audio file which has been loaded with loadClip.
+	 * This takes no time, and any number of clips can play at once.
+	 * 
+	 * @param id The id of the audio, given by loadClip.
+	 * @param volume The volume of the audio to be played, in dB relative to the file.
+	 * @return Whether or not the audio clip will be played.
+	 */
+	public static boolean playClip(int id, float volume){
+		SoundMixer currentMixer = mixer;
+		if(currentMixer == null) return false;
 		
-		return true;
+		return currentMixer.play(id, (float)Math.pow(10, volume/20));
+	}
+	
+	/**
+	 * Plays a *short* audio file. This should not be used
+	 * for audio over a few seconds long. The file is loaded
+	 * the first time it is played; use loadClip to do so
+	 * ahead of time.
+	 * 
+	 * @param fname The filename of the audio to be played.
+	 * @param volume The volume of the audio to be played, in dB relative to the file.
+	 * @return Whether or not the audio clip will be played.
+	 */
+	public static boolean playClip(String fname, float volume){
+		if(fname == null) return false;
+		return playClip(loadClip(fname), volume);
 	}
 	
 	/**
 	 * Terminates any audio currently playing
 	 */
 	public static void terminate(){
-		if(currentClip != null)
-			currentClip.stop();
-		if(currentAudio != null)
-			currentAudio.stop();
+		if(mixer != null)
+			mixer.stopAll();
+		stopLongAudio(null);
+	}
+	
+	/**
+	 * A position of the long audio, and when it was checked.
+	 */
+	private static class AudioPosition {
+		// The position (ms) within the audio file; -1 if it isn't playing
+		private final double position;
+		// The system time (ns) at which it was checked
+		private final long time;
+		
+		/**
+		 * Constructor; instantiates AudioPosition.
+		 */
+		private AudioPosition(double position, long time){
+			this.position = position;
+			this.time = time;
+		}
 	}
 }
@@ -0,0 +1,188 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * A shared, statically accessed cache of decoded background images.
+ *
+ * Images are only decoded when they are first asked for, and are kept
+ * until the total size of all cached images goes over the budget given
+ * in Options, at which point the least recently used are dropped.
+ * Decoding can be done in the background, so that the event dispatch
+ * thread never has to wait on a large JPEG.
+ *
+ * @author Robert Campbell
+ */
+public class BackgroundCache {
+	// Cached images by file name, in order from least to most recently used
+	private static final LinkedHashMap<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>(16, 0.75f, true);
+	// The total size, in bytes, of all cached images
+	private static long cachedBytes = 0;
+
+	// Images which are currently being decoded in the background, by file name
+	private static final Map<String, CompletableFuture<BufferedImage>> decoding = new HashMap<String, CompletableFuture<BufferedImage>>();
+
+	// The single thread that background decoding is done on
+	private static final ExecutorService decoder = Executors.newSingleThreadExecutor(new ThreadFactory(){
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "Background decoder");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	// The number of times an image was asked for and was or wasn't already cached
+	private static final AtomicLong hitCount = new AtomicLong();
+	private static final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Returns the image from the given file, decoding it on this thread if it isn't cached.
+	 * @param fname The filename of the image.
+	 * @return The image, or null if it couldn't be read.
+	 */
+	public static BufferedImage get(String fname){
+		BufferedImage image = getCached(fname);
+		if(image != null) return image;
+		return decode(fname);
+	}
+
+	/**
+	 * Finds the image from the given file, decoding it in the background if it isn't cached.
+	 * @param fname The filename of the image.
+	 * @param onReady Receives the image, or null if it couldn't be read, on the event dispatch thread.
+	 */
+	public static void request(final String fname, final Consumer<BufferedImage> onReady){
+		BufferedImage image = getCached(fname);
+		if(image != null){
+			deliver(image, onReady);
+			return;
+		}
+
+		CompletableFuture<BufferedImage> future;
+		synchronized(decoding){
+			// If it's already being decoded, just wait for that
+			future = decoding.get(fname);
+			if(future == null){
+				future = CompletableFuture.supplyAsync(() -> decode(fname), decoder);
+				decoding.put(fname, future);
+			}
+		}
+		future.thenAccept(decoded -> deliver(decoded, onReady));
+	}
+
+	/**
+	 * Passes an image to a consumer on the event dispatch thread.
+	 */
+	private static void deliver(final BufferedImage image, final Consumer<BufferedImage> onReady){
+		SwingUtilities.invokeLater(new Runnable(){
+			public void run(){
+				onReady.accept(image);
+			}
+		});
+	}
+
+	/**
+	 * Returns the image from the given file if it is cached, or null if not.
+	 * Counts as a hit or a miss.
+	 */
+	private static BufferedImage getCached(String fname){
+		BufferedImage image;
+		synchronized(images){
+			image = images.get(fname);
+		}
+		if(image != null) hitCount.incrementAndGet();
+		else missCount.incrementAndGet();
+		return image;
+	}
+
+	/**
+	 * Decodes the image from the given file and caches it.
+	 * @return The image, or null if it couldn't be read.
+	 */
+	private static BufferedImage decode(String fname){
+		BufferedImage image = null;
+		try{ image = ImageIO.read(new File(fname)); }
+		// It's fine if there's no image; e.g. maps don't need backgrounds
+		catch(IOException e){ image = null; }
+
+		if(image != null) put(fname, image);
+		synchronized(decoding){
+			decoding.remove(fname);
+		}
+		return image;
+	}
+
+	/**
+	 * Adds an image to the cache, dropping the least recently used images until it fits in the budget.
+	 */
+	private static void put(String fname, BufferedImage image){
+		synchronized(images){
+			BufferedImage previous = images.put(fname, image);
+			if(previous != null) cachedBytes -= getSize(previous);
+			cachedBytes += getSize(image);
+
+			// Drop the least recently used, but always keep the newest image
+			Iterator<BufferedImage> iter = images.values().iterator();
+			while(cachedBytes > Options.BACKGROUND_CACHE_BYTES && images.size() > 1){
+				cachedBytes -= getSize(iter.next());
+				iter.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops the image from the given file from the cache, if it is cached;
+	 * e.g. because the file has changed.
+	 */
+	public static void remove(String fname){
+		synchronized(images){
+			BufferedImage previous = images.remove(fname);
+			if(previous != null) cachedBytes -= getSize(previous);
+		}
+	}
+
+	/**
+	 * Returns the size, in bytes, of an image's pixel data.
+	 */
+	private static long getSize(BufferedImage image){
+		DataBuffer data = image.getRaster().getDataBuffer();
+		return (long)data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+	}
+
+	/**
+	 * Returns the number of times an image was asked for and was already cached.
+	 */
+	public static long getHitCount(){
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of times an image was asked for and had to be decoded.
+	 */
+	public static long getMissCount(){
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the total size, in bytes, of all cached images.
+	 */
+	public static long getCachedBytes(){
+		synchronized(images){
+			return cachedBytes;
+		}
+	}
+}
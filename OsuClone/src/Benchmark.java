@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Runs measurements of parts of MyOsu! which don't need a window, on
+ * made up maps, and prints the results. Run with the name of a
+ * benchmark to run only that one, or with no arguments to run all.
+ *
+ * @author Robert Campbell
+ */
+public class Benchmark {
+	/**
+	 * Runs the benchmarks named in args, or all of them.
+	 */
+	public static void main(String[] args){
+		boolean all = args.length == 0;
+		for(String arg : args){
+			if(arg.equals("all")) all = true;
+		}
+
+		if(all || contains(args, "activation")) activation();
+		if(all || contains(args, "hitTest")) hitTest();
+	}
+
+	/**
+	 * Returns whether the given array contains the given string.
+	 */
+	private static boolean contains(String[] array, String s){
+		for(String a : array){
+			if(a.equals(s)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a map with circles at the given rate (per second) for the given
+	 * length of time (ms), with a short break every ten seconds. The first
+	 * circle is at 10 seconds, so that none are due before the map starts.
+	 */
+	public static HitObjects denseMap(int objectsPerSecond, int duration){
+		List<Element> elements = new ArrayList<Element>();
+		double gap = 1000.0 / objectsPerSecond;
+		for(int i = 0; i*gap < duration; i++){
+			int time = 10000 + (int)(i*gap);
+			elements.add(new Circle(time, 100 + (i*37)%800, 100 + (i*53)%600));
+		}
+		for(int time = 20000; time < duration; time += 10000){
+			elements.add(new Break(time, time + 2000));
+		}
+		return HitObjects.fromElements(elements);
+	}
+
+	/**
+	 * Measures how late elements are shown on maps of increasing density, both
+	 * releasing every element due on each tick (as ElementScheduler does) and
+	 * releasing at most one element per tick.
+	 */
+	private static void activation(){
+		int tick = Options.GAME_TICK_TIME;
+		int approachTime = 1000;
+		int duration = 60000;
+		System.out.println("Activation lag, " + tick + " ms ticks, " + duration/1000 + " s maps:");
+
+		for(int density : new int[]{ 10, 50, 100, 200, 500, 1000 }){
+			HitObjects map = denseMap(density, duration);
+
+			// Every element due on each tick
+			ElementScheduler scheduler = new ElementScheduler(map, approachTime);
+			int lateCount = 0;
+			for(int time = 0; !scheduler.isFinished(); time += tick){
+				int next;
+				while((next = scheduler.nextDueHit(time)) != -1){
+					// Released on a later tick than the first one it was due on
+					if(time - (map.getTime(next) - approachTime) > tick) lateCount++;
+				}
+				while(scheduler.nextDueBreak(time) != -1);
+			}
+
+			// At most one element per tick
+			int oneMaxLag = 0;
+			int oneLateCount = 0;
+			int released = 0;
+			for(int time = 0; released < map.getHitCount(); time += tick){
+				int next = map.getHit(released);
+				if(map.getTime(next) - time < approachTime){
+					int lag = time - (map.getTime(next) - approachTime);
+					oneMaxLag = Math.max(oneMaxLag, lag);
+					if(lag > tick) oneLateCount++;
+					released++;
+				}
+			}
+
+			System.out.println(String.format("  %4d objects/s: every due element; max lag %5d ms, %5d late | one per tick; max lag %6d ms, %5d late",
+					density, scheduler.getMaxLag(), lateCount, oneMaxLag, oneLateCount));
+		}
+	}
+
+	/**
+	 * Measures how long it takes to find what a click landed on with increasing
+	 * numbers of circles on screen, both by looking through every element on
+	 * screen (as Game used to) and by looking in a HitGrid.
+	 */
+	private static void hitTest(){
+		int circleSize = 80;
+		int presses = 200000;
+		System.out.println("Hit testing, " + circleSize + " px circles, " + presses + " presses:");
+
+		for(int onScreen : new int[]{ 10, 50, 100, 200, 500, 1000 }){
+			// A second's worth of circles, all on screen at once
+			HitObjects map = denseMap(onScreen, 1000);
+			ActiveElements active = new ActiveElements();
+			HitGrid grid = new HitGrid(map, circleSize);
+			for(int k = 0; k < onScreen && k < map.getHitCount(); k++){
+				int id = map.getHit(k);
+				active.add(map.getElement(id));
+				grid.add(id);
+			}
+
+			// The same presses for both, spread over the area that the circles are in
+			int[] pressX = new int[presses];
+			int[] pressY = new int[presses];
+			Random random = new Random(1);
+			for(int p = 0; p < presses; p++){
+				pressX[p] = 50 + random.nextInt(900);
+				pressY[p] = 50 + random.nextInt(700);
+			}
+
+			// Run each twice, and time the second, so that both have been compiled
+			long linearTime = 0;
+			long gridTime = 0;
+			int linearHits = 0;
+			int gridHits = 0;
+			for(int run = 0; run < 2; run++){
+				long start = System.nanoTime();
+				linearHits = 0;
+				for(int p = 0; p < presses; p++){
+					if(linearHitTest(active, pressX[p], pressY[p], circleSize) != -1) linearHits++;
+				}
+				linearTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				gridHits = 0;
+				for(int p = 0; p < presses; p++){
+					if(grid.findHit(pressX[p], pressY[p], 0) != -1) gridHits++;
+				}
+				gridTime = System.nanoTime() - start;
+			}
+
+			System.out.println(String.format("  %4d on screen: linear scan %7.1f ns/press | grid %6.1f ns/press | %d and %d hits",
+					onScreen, (double)linearTime/presses, (double)gridTime/presses, linearHits, gridHits));
+		}
+	}
+
+	/**
+	 * Finds the oldest circle on screen that a click landed on by checking each in turn,
+	 * as Game.elementCheck used to.
+	 * @return The ID of the circle hit, or -1 if none were.
+	 */
+	private static int linearHitTest(ActiveElements active, int x, int y, int circleSize){
+		for(int id = active.getFirstId(); id < active.getEndId(); id++){
+			Element element = active.get(id);
+			if(element == null || element.getElementType() != 1) continue;
+			double radius = Math.sqrt(Math.pow(x-element.getX(),2) + Math.pow(y-element.getY(),2));
+			if(radius < circleSize/2) return id;
+		}
+		return -1;
+	}
+}
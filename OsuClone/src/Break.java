@@ -8,17 +8,25 @@
  * @author Robert Campbell
  */
 public class Break implements Element {
-	private int startTime;
-	private int endTime;
-	private int id;
+	private final int startTime;
+	private final int endTime;
+	private final int id;
 	
 	/**
 	 * A break only needs the start and end times,
 	 * between which health will not be lost over time.
 	 */
 	public Break(int startTime, int endTime){
+		this(startTime, endTime, 0);
+	}
+
+	/**
+	 * Constructor; instantiates a break with an ID; its index in the map's HitObjects.
+	 */
+	public Break(int startTime, int endTime, int id){
 		this.startTime = startTime;
 		this.endTime = endTime;
+		this.id = id;
 	}
 
 	@Override
@@ -56,11 +64,6 @@ public class Break implements Element {
 		return id;
 	}
 
-	@Override
-	public void setId(int id) {
-		this.id = id;
-	}
-
 	@Override
 	public boolean equals(Element e) {
 		if(e.getElementType() == getElementType() && 
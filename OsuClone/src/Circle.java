@@ -10,14 +10,10 @@
  * @author campberobe1
  */
 public class Circle implements Element {
-	private int startTime;
-	private int x;
-	private int y;
-	private int id;
-
-	// The size of the approach circle; not used within this class
-	// But should be managed outside of it
-	public double approachCircleSize = 0;
+	private final int startTime;
+	private final int x;
+	private final int y;
+	private final int id;
 
 	/**
 	 * Constructor; instantiates circle.
@@ -26,9 +22,21 @@ public class Circle implements Element {
 	 * @param y The center y position of this circle.
 	 */
 	public Circle(int startTime, int x, int y){
+		this(startTime, x, y, 0);
+	}
+
+	/**
+	 * Constructor; instantiates circle with an ID.
+	 * @param startTime The time when this circle _should_ be pressed;
+	 * @param x The center x position of this circle.
+	 * @param y The center y position of this circle.
+	 * @param id The ID of this circle; its index in the map's HitObjects.
+	 */
+	public Circle(int startTime, int x, int y, int id){
 		this.startTime = startTime;
 		this.x = x;
 		this.y = y;
+		this.id = id;
 	}
 
 	@Override
@@ -57,11 +65,6 @@ public class Circle implements Element {
 		return id;
 	}
 
-	@Override
-	public void setId(int id){
-		this.id = id;
-	}
-
 	@Override
 	public boolean equals(Element e){
 		if(e.getElementType() == 1 && e.getId() == id) return true;
@@ -9,6 +9,10 @@
  * In general, circles and then sliders are the most common elements, with
  * spinners making up a minority of elements in any given map.
  *
+ * Elements never change once made, so the same elements can be shared by
+ * any number of games at once; anything that changes during a game is kept
+ * by that game instead, by element ID.
+ *
  * @author campberobe1
  */
 public interface Element {
@@ -35,18 +39,11 @@ public interface Element {
 
 	/**
 	 * Returns the ID of this element
-	 * No guarantees are made that IDs are unique,
-	 * but they should be made unique.
+	 * For elements of a map, this is the element's index in the map's HitObjects,
+	 * so is unique within the map; elements made any other way have the ID 0.
 	 */
 	public int getId();
 
-	/**
-	 * Sets the ID of this element
-	 * As the IDs of elements are not defined
-	 * upon construction.
-	 */
-	public void setId(int id);
-
 	/**
 	 * Checks to see if this element is equal to another element
 	 * Two elements are equal if
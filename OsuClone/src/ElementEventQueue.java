@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A queue of elements which something has happened to, passed from one
+ * thread to another without locking. The game uses one to tell the drawing
+ * which elements have been judged.
+ *
+ * Events are kept in a fixed ring of slots, so adding and taking them never
+ * allocates. As in InputQueue, only one thread may add events and only one
+ * may take them, so drawing can be done on a different thread to the game.
+ *
+ * @author Robert Campbell
+ */
+public class ElementEventQueue {
+	// The number of slots; must be a power of two
+	private static final int CAPACITY = 256;
+	private static final int MASK = CAPACITY - 1;
+
+	// The events waiting, in a circle of slots
+	private final Element[] element = new Element[CAPACITY];
+
+	// The number of events ever added and ever taken; written only by the adding and taking threads respectively
+	private final AtomicLong added = new AtomicLong();
+	private final AtomicLong taken = new AtomicLong();
+
+	// The event most recently taken; only used by the taking thread
+	private Element currentElement;
+
+	/**
+	 * Adds an event. Only to be called by the one thread which adds events.
+	 * @param element The element the event happened to.
+	 * @return Whether the event was added; false if the queue was full.
+	 */
+	public boolean offer(Element element){
+		long next = added.get();
+		if(next - taken.get() >= CAPACITY) return false;
+
+		int slot = (int)(next & MASK);
+		this.element[slot] = element;
+		// Publishes the slot to the taking thread
+		added.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the next event, after which its element can be read with getElement().
+	 * Only to be called by the one thread which takes events.
+	 * @return Whether an event was taken; false if there were none.
+	 */
+	public boolean poll(){
+		long next = taken.get();
+		if(next >= added.get()) return false;
+
+		int slot = (int)(next & MASK);
+		currentElement = element[slot];
+		// Don't keep the element alive just because its slot hasn't been reused yet
+		element[slot] = null;
+		// Frees the slot for the adding thread
+		taken.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * Returns the element of the event last taken.
+	 */
+	public Element getElement(){
+		return currentElement;
+	}
+}
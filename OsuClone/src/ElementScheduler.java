@@ -0,0 +1,122 @@
+/**
+ * Decides when each element of a map should be shown, for one game.
+ *
+ * Circles and sliders are due once the map time is within the approach
+ * time of their start time, and breaks are due once their start time has
+ * passed. Each kind is released from its own time index in HitObjects, so
+ * a break which isn't due yet never holds up the circles behind it, and
+ * every element which has become due is released on the same tick, however
+ * many there are.
+ *
+ * Also keeps track of how late elements were released, which should never
+ * be more than the time between two ticks.
+ *
+ * @author Robert Campbell
+ */
+public class ElementScheduler {
+	// The elements of the map
+	private HitObjects hitObjects;
+	// The time between an element appearing and it needing to be clicked
+	private int approachTime;
+
+	// The position in the index of circles/sliders and the index of breaks of the next element to release
+	private int nextHit = 0;
+	private int nextBreak = 0;
+
+	// The greatest and total amount of time (ms) by which elements were released after they were due
+	private int maxLag = 0;
+	private long totalLag = 0;
+	// The map time the clock last jumped to; elements which became due before it are late by the jump, not by a tick
+	private int jumpTime = Integer.MIN_VALUE;
+
+	/**
+	 * Constructor; instantiates ElementScheduler.
+	 * @param hitObjects The elements of the map being played.
+	 * @param approachTime The time (ms) between an element appearing and it needing to be clicked.
+	 */
+	public ElementScheduler(HitObjects hitObjects, int approachTime){
+		this.hitObjects = hitObjects;
+		this.approachTime = approachTime;
+	}
+
+	/**
+	 * Releases the next circle or slider if it is due.
+	 * This should be called until it returns -1, to release every element due.
+	 * @param mapTime The current time in the map.
+	 * @return The index of the element in the map's HitObjects, or -1 if none are due.
+	 */
+	public int nextDueHit(int mapTime){
+		if(nextHit >= hitObjects.getHitCount()) return -1;
+
+		int i = hitObjects.getHit(nextHit);
+		// If it's within the time range where it should appear
+		if(hitObjects.getTime(i) - mapTime >= approachTime) return -1;
+
+		recordLag(mapTime - Math.max(hitObjects.getTime(i) - approachTime, jumpTime));
+		nextHit++;
+		return i;
+	}
+
+	/**
+	 * Releases the next break if it has started.
+	 * This should be called until it returns -1, to release every break due.
+	 * @param mapTime The current time in the map.
+	 * @return The index of the break in the map's HitObjects, or -1 if none are due.
+	 */
+	public int nextDueBreak(int mapTime){
+		if(nextBreak >= hitObjects.getBreakCount()) return -1;
+
+		int i = hitObjects.getBreak(nextBreak);
+		if(hitObjects.getTime(i) >= mapTime) return -1;
+
+		nextBreak++;
+		return i;
+	}
+
+	/**
+	 * Tells the scheduler that the map time has jumped forward to the given time without
+	 * it being ticked in between, as it does for a skip or the initial break, so that
+	 * elements which became due during the jump aren't counted as released late.
+	 * @param mapTime The time in the map jumped to.
+	 */
+	public void jumpTo(int mapTime){
+		jumpTime = Math.max(jumpTime, mapTime);
+	}
+
+	/**
+	 * Records that an element was released the given time after it was due.
+	 */
+	private void recordLag(int lag){
+		maxLag = Math.max(maxLag, lag);
+		totalLag += lag;
+	}
+
+	/**
+	 * Returns whether every circle and slider in the map has been released.
+	 */
+	public boolean isFinished(){
+		return nextHit >= hitObjects.getHitCount();
+	}
+
+	/**
+	 * Returns the number of circles and sliders released so far.
+	 */
+	public int getReleasedCount(){
+		return nextHit;
+	}
+
+	/**
+	 * Returns the greatest time (ms) by which a circle or slider was released after it was due.
+	 */
+	public int getMaxLag(){
+		return maxLag;
+	}
+
+	/**
+	 * Returns the average time (ms) by which circles and sliders were released after they were due.
+	 */
+	public double getAverageLag(){
+		if(nextHit == 0) return 0;
+		return (double)totalLag / nextHit;
+	}
+}
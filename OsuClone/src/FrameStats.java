@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+/**
+ * Records the time between consecutive frames being shown, so that
+ * different ways of drawing the game can be compared. Only the most
+ * recent frames are kept; enough for several minutes of play.
+ *
+ * @author Robert Campbell
+ */
+public class FrameStats {
+	// The number of frame times kept
+	private static final int CAPACITY = 1 << 16;
+
+	// The most recent frame times (ns), written in a circle
+	private final long[] frameTimes = new long[CAPACITY];
+	// The total number of frames recorded, including those no longer kept
+	private long count = 0;
+	// When the last frame was shown, or 0 if none has been yet
+	private long lastFrame = 0;
+
+	/**
+	 * Records that a frame has just been shown.
+	 */
+	public synchronized void frame(){
+		long now = System.nanoTime();
+		if(lastFrame != 0){
+			frameTimes[(int)(count % CAPACITY)] = now - lastFrame;
+			count++;
+		}
+		lastFrame = now;
+	}
+
+	/**
+	 * Forgets when the last frame was shown, so that a gap in drawing
+	 * (such as while paused) isn't counted as one very long frame.
+	 */
+	public synchronized void pause(){
+		lastFrame = 0;
+	}
+
+	/**
+	 * Returns the given percentile (0-100) of the recorded frame times, in ms.
+	 */
+	public synchronized double getPercentile(double percentile){
+		long[] sorted = getSortedTimes();
+		if(sorted.length == 0) return 0;
+		int i = (int)Math.ceil(percentile/100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length-1, i))] / 1e6;
+	}
+
+	/**
+	 * Returns a copy of the kept frame times, in increasing order.
+	 */
+	private long[] getSortedTimes(){
+		long[] sorted = Arrays.copyOf(frameTimes, (int)Math.min(count, CAPACITY));
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Returns a one line summary of the frame times, starting with the given name.
+	 */
+	public synchronized String report(String name){
+		long[] sorted = getSortedTimes();
+		if(sorted.length == 0) return name + ": no frames";
+
+		long total = 0;
+		for(long time : sorted) total += time;
+		return String.format("%s: %d frames, %.1f fps; frame time p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+				name, count, sorted.length * 1e9 / total, getPercentile(50), getPercentile(95), getPercentile(99),
+				sorted[sorted.length-1] / 1e6);
+	}
+}
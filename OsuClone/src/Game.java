@@ -1,18 +1,25 @@
 import java.awt.BorderLayout;
+import java.awt.Canvas;
+import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
@@ -24,48 +31,69 @@ import javax.swing.event.MouseInputAdapter;
 public class Game {
 	// The minimum combo that is required to break to play the combo break sound
 	private static final int MIN_COMBO_FOR_BREAK = 10;
-	// The base loss of health per tick; modified by the map's health
-	private static final double HEALTH_LOSS = 0.1;
+	// The base loss of health per second; modified by the map's health
+	private static final double HEALTH_LOSS = 5;
+	
+	// The length (ms) of one step of the simulation. Gameplay is always simulated in steps
+	// of exactly this length, however often the timer fires or frames are drawn.
+	private static final int STEP_TIME = 5;
+	// The most steps to simulate at once when catching up; any more are left for the next tick
+	private static final int MAX_CATCH_UP_STEPS = 200;
 	
 	// Volumes for sound clips; in relative dB (I think)
 	private static final float HIT_SOUND_VOLUME = -20f;
 	private static final float COMBO_BREAK_VOLUME = 0.7f;
 	
-	// The map that is being played
+	// The ids of the sound clips, loaded ahead of time so that they play instantly
+	private int hitSound;
+	private int comboBreakSound;
+	
+	// The map that is being played; only loaded once play begins
+	private MapInfo info;
 	private GameMap map;
+	// The elements of the map, and what decides when each should be shown
+	private HitObjects hitObjects;
+	private ElementScheduler scheduler;
 
 	// Swing components
 	private JFrame mainFrame;
 	private GameDraw mainPanel;
+	// What the game is shown on and takes input from; the panel itself, or a canvas when actively rendering
+	private Component gameSurface;
 	private GamePauseMenu pauseMenu;
 	private GameEndScreen endScreen;
 	private JFrame endFrame;
 
-	// The game timer
+	// The game timer; only used when Swing does the drawing
 	private Timer timer;
+	// The thread which advances and draws the game; only used when actively rendering
+	private GameLoop gameLoop;
 
 	// The queue of elements to be displayed
 	private Queue<Element> elements = new LinkedList<Element>();
-	// The list of all elements which are currently being displayed
-	private List<Element> currentElements = new ArrayList<Element>();
+	// All elements which are currently being displayed, by id; also what mainPanel draws
+	private ActiveElements activeElements = new ActiveElements();
+	// The circles and sliders being displayed, by where they are; for finding what was clicked
+	private HitGrid hitGrid;
 
 	// The time between an element appearing and it needing to be clicked
 	private int approachTime;
 	// The size, in pixels, of all elements
 	private int circleSize;
-	// The current time in the map
+	// The current time in the map; the time up to which the map has been simulated
 	private int currentMapTime;
-	// The system time at which the map started
-	private long mapStartTime;
+	// The time in the map which is being drawn; somewhere between the last step and the next
+	private double renderTime;
+	// Keeps the map time; following the audio if there is any
+	private MapClock clock;
 	// The time at which the audio for the map should start
 	private int audioStartTime;
 
-	// To have a unique id for every element within a certain map
-	private int currentElementId = 0;
-
 	// The score and current health of the player
 	private int score = 0;
 	private double health = 0;
+	// The health of the player before the last step, to draw between the two
+	private double previousHealth = 0;
 	
 	// The current combo
 	private int combo = 0;
@@ -96,23 +124,33 @@ public class Game {
 
 	// Whether the mouse (or key) is currently being held down or not
 	private boolean mouseDown = false;
+	
+	// Input events waiting to be handled by the simulation, each with the time it happened
+	private InputQueue inputQueue = new InputQueue();
+	// The map time at which the input being handled happened; clicks are judged at this time
+	private double inputTime;
 
 	// The slider which is currently being held down; null if none is being held down
 	private Slider activeSlider = null;
+	// The amount of 'points' accrued on each slider, by element ID; one per ms that it
+	// has been held. The amount by the time a slider ends determines its score.
+	private int[] sliderPoints;
 	
 	// The volume that the music should be played at
 	private double volume = 0.5;
 	
-	// The total amount of time which the map has been paused for
-	private double pauseDelay = 0;
-	// The start time of the current pause; only reliable when the game is paused
-	private long pauseStartTime;
-	
-	// The amount of time skipped from the initial pause
-	private int skippedTime = 0;
-	
-	// Whether or not the audio has initialised, since it has a short delay
-	public boolean audioInitialised = false;
+	// Loads everything needed to start a game, so that it can all be loaded at once
+	private static final ExecutorService LOADER = Executors.newCachedThreadPool(new ThreadFactory(){
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "Game loader");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	// The system time (ns) at which the game started loading
+	private long loadStartTime;
+	// Whether the game has been closed
+	private boolean terminated = false;
 	
 	// Mods which are active for this game
 	private Map<String, Boolean> modsActive;
@@ -124,18 +162,99 @@ public class Game {
 	
 	// When the break, before play starts, ends
 	private int initialBreakEnd;
+	
+	// Whether the map has finished, after which nothing more should be simulated
+	private boolean finished = false;
 
 	/**
-	 * Constructor; instantiates Game.
-	 * @param map The GameMap which this instance will play.
+	 * Constructor; instantiates Game. Returns straight away, with the window up;
+	 * the map, audio, skin and sounds are then loaded at the same time, and play
+	 * starts once they're all ready.
+	 * @param info The map which this instance will play.
 	 * @param modsActive Which mods are active for this game.
 	 */
-	public Game(GameMap map, Map<String, Boolean> modsActive){
+	public Game(MapInfo info, Map<String, Boolean> modsActive){
+		this.info = info;
+		this.modsActive = modsActive;
+		loadStartTime = System.nanoTime();
+
+		// Start everything loading; the audio is loaded by JavaFX and the rest by the loader threads
+		CompletableFuture<Boolean> audio = logPhase("Audio", AudioPlayer.loadLongAudio(info.getAudio(), info.getAudioStartTime(), volume)
+				.handle((ready, e) -> {
+					// The game can still be played without its music
+					if(e != null) System.err.println("Could not load audio for map '"+info.getName()+"'. " + e);
+					return e == null && info.getAudio() != null;
+				}));
+		CompletableFuture<GameMap> mapLoad = logPhase("Map", CompletableFuture.supplyAsync(() -> loadMap(info.getName()), LOADER));
+		mainPanel = new GameDraw();
+		CompletableFuture<Void> skin = logPhase("Skin", SkinCache.load().thenRunAsync(() -> mainPanel.loadImages(), LOADER));
+		CompletableFuture<Void> sounds = logPhase("Sounds", CompletableFuture.runAsync(() -> {
+			hitSound = AudioPlayer.loadClip(Options.SKIN_CIRCLE_HIT_SOUND);
+			comboBreakSound = AudioPlayer.loadClip(Options.SKIN_COMBO_BREAK_SOUND);
+		}, LOADER));
+		// The sprites are scaled to the circle size, so need both the map and the skin
+		CompletableFuture<SpriteCache> sprites = logPhase("Sprites", mapLoad.thenCombineAsync(skin, (loaded, v) -> GameDraw.createSprites(getCircleSize(loaded)), LOADER));
+
+		// The window can only be made on this (the event dispatch) thread, while everything else loads
+		long windowStart = System.nanoTime();
+		createWindow();
+		System.out.println(String.format("Window ready after %.0f ms (took %.0f ms)", (System.nanoTime()-loadStartTime)/1e6, (System.nanoTime()-windowStart)/1e6));
+
+		CompletableFuture.allOf(audio, mapLoad, skin, sounds, sprites).whenComplete((v, e) -> SwingUtilities.invokeLater(new Runnable(){
+			public void run(){
+				if(e != null){
+					System.err.println("Could not start map '"+info.getName()+"'. " + e);
+					terminate();
+				}
+				else{
+					begin(mapLoad.join(), audio.join(), sprites.join());
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Returns the size of all circles in a map, with the mods chosen.
+	 */
+	private int getCircleSize(GameMap map){
+		return modsActive.get("hardrock") ? map.getCSHR() : map.getCS();
+	}
+
+	/**
+	 * Loads a map, for the loader threads.
+	 */
+	private static GameMap loadMap(String name){
+		try{
+			return MapCompiler.load(name);
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Prints how long after the game was started the given phase of loading finished.
+	 * @return The given future, to carry on with.
+	 */
+	private <T> CompletableFuture<T> logPhase(String phase, CompletableFuture<T> future){
+		future.whenComplete((v, e) -> System.out.println(String.format("%s ready after %.0f ms", phase, (System.nanoTime()-loadStartTime)/1e6)));
+		return future;
+	}
+
+	/**
+	 * Starts play, once everything has loaded.
+	 * @param map The GameMap which this instance will play.
+	 * @param audioLoaded Whether the audio of the map was loaded; if not, the map is played without it.
+	 * @param sprites The hit object sprites, already scaled to the map's circle size.
+	 */
+	private void begin(GameMap map, boolean audioLoaded, SpriteCache sprites){
+		// The game might have been closed while loading
+		if(terminated) return;
+
 		// Set all the initial attributes from the map
 		
 		this.map = map;
-		map.resetQueue();
-		this.modsActive = modsActive;
+		hitObjects = map.getHitObjects();
 
 		currentMapTime = 0;
 		initialBreakEnd = map.getInitialBreakEnd();
@@ -143,7 +262,6 @@ public class Game {
 		if(modsActive.get("hardrock")){
 			timeOffsets = map.getODHR();
 			approachTime = map.getARHR();
-			circleSize = map.getCSHR();
 			healthChange[3] /= map.getHealthHR();
 			healthChange[2] /= map.getHealthHR();
 			healthChange[1] /= map.getHealthHR();
@@ -153,7 +271,6 @@ public class Game {
 		else{
 			timeOffsets = map.getOD();
 			approachTime = map.getAR();
-			circleSize = map.getCS();
 			healthChange[3] /= map.getHealth();
 			healthChange[2] /= map.getHealth();
 			healthChange[1] /= map.getHealth();
@@ -162,32 +279,64 @@ public class Game {
 			healthChange[0] *= map.getHealth();
 			healthLoss = HEALTH_LOSS/map.getHealth();
 		}
+		circleSize = getCircleSize(map);
 		
 
+		scheduler = new ElementScheduler(hitObjects, approachTime);
+		// Nothing is released during the initial break, so play starts with a jump to its end
+		scheduler.jumpTo(initialBreakEnd);
+		sliderPoints = new int[hitObjects.size()];
+		hitGrid = new HitGrid(hitObjects, circleSize);
+
 		audioStartTime = map.getAudioStartTime();
 		
-		// Begins playing the audio of the map
-		AudioPlayer.playLongAudio(map.getAudio(), audioStartTime, volume, this);
-		
-		// I know that this is poor code, but I'm not really sure what else to use.
-		while(!audioInitialised){ try {Thread.sleep(10);} catch(Exception e){}}
-		
-		createWindow();
+		// Initialise the panel's attributes, and start listening for input
+		mainPanel.init(circleSize, approachTime, timeOffsets[2], sprites, this);
+		addListeners();
 
-		// Set the timer to do the game loop
-		class InnerActionListener implements ActionListener {
-			public void actionPerformed(ActionEvent e){
-				// If it's the timer, do the game loop
-				if(e.getSource().equals(timer)){
-					doGame();
+		if(Options.GAME_ACTIVE_RENDERING){
+			gameLoop = new GameLoop(this, (Canvas)gameSurface, Options.GAME_RENDER_BUFFERS, Options.GAME_FRAME_CAP, mainPanel.getFrameStats());
+		}
+		else{
+			// Set the timer to do the game loop
+			class InnerActionListener implements ActionListener {
+				public void actionPerformed(ActionEvent e){
+					// If it's the timer, do the game loop
+					if(e.getSource().equals(timer)){
+						doGame();
+					}
 				}
 			}
+			timer = new Timer(Options.GAME_TICK_TIME, new InnerActionListener());
+			timer.setInitialDelay(0);
 		}
-		timer = new Timer(Options.GAME_TICK_TIME, new InnerActionListener());
-		timer.setInitialDelay(0);
-		timer.start();
 		
-		mapStartTime = System.currentTimeMillis();
+		// Begins playing the audio of the map, and the map with it
+		clock = audioLoaded ? new AudioClock(audioStartTime) : new SystemClock();
+		AudioPlayer.startLongAudio();
+		clock.start();
+		startLoop();
+		
+		System.out.println(String.format("Playing after %.0f ms", (System.nanoTime()-loadStartTime)/1e6));
+	}
+	
+	/**
+	 * Starts (or resumes) advancing and drawing the game;
+	 * with the timer, or the game loop thread when actively rendering.
+	 */
+	private void startLoop(){
+		if(gameLoop != null) gameLoop.start();
+		else timer.start();
+	}
+	
+	/**
+	 * Stops advancing and drawing the game.
+	 */
+	private void stopLoop(){
+		if(gameLoop != null) gameLoop.stop();
+		else if(timer != null) timer.stop();
+		// The time until it starts again shouldn't count as a frame
+		mainPanel.getFrameStats().pause();
 	}
 	
 	/**
@@ -232,7 +381,7 @@ public class Game {
 	 */
 	private void createWindow(){
 		// Create the outer frame
-		mainFrame = new JFrame("MyOsu! Playing " + map.getName());
+		mainFrame = new JFrame("MyOsu! Playing " + info.getName());
 		
 		// Code for windowed
 		//mainFrame.setSize(Options.GAME_WINDOW_DEFAULT_WIDTH, Options.GAME_WINDOW_DEFAULT_HEIGHT);
@@ -252,35 +401,57 @@ public class Game {
 			}
 		});
 
-		// And the panel to draw on inside it
-		mainPanel = new GameDraw();
-		// Initialise its attributes
-		mainPanel.init(circleSize, approachTime, timeOffsets[2], this);
+		// And the panel to draw on inside it; this was already made, so that its images could be loading
 
-		mainPanel.setFocusable(true);
-		mainPanel.requestFocus();
+		// When actively rendering, the panel only does the drawing; a canvas is what's shown
+		if(Options.GAME_ACTIVE_RENDERING){
+			Canvas canvas = new Canvas();
+			canvas.setIgnoreRepaint(true);
+			canvas.setBackground(java.awt.Color.BLACK);
+			gameSurface = canvas;
+		}
+		else{
+			gameSurface = mainPanel;
+		}
 
-		mainFrame.add(mainPanel, BorderLayout.CENTER);
+		gameSurface.setFocusable(true);
 
-		mainFrame.setVisible(true);
+		mainFrame.add(gameSurface, BorderLayout.CENTER);
 
+		mainFrame.setVisible(true);
+		gameSurface.requestFocus();
+	}
+	
+	/**
+	 * Starts listening for input on the game's window
+	 */
+	private void addListeners(){
 		// Set the mouse listener on the screen
-		mainPanel.addMouseListener(mouseListener = new InnerMouseListener());
-		mainPanel.addMouseMotionListener(mouseListener);
+		gameSurface.addMouseListener(mouseListener = new InnerMouseListener());
+		gameSurface.addMouseMotionListener(mouseListener);
 
 		keyListener = new InnerKeyListener();
-		mainPanel.addKeyListener(keyListener);
+		gameSurface.addKeyListener(keyListener);
 	}
 
 	/**
 	 * Terminates the game
 	 */
 	public void terminate(){
-		AudioPlayer.stopLongAudio(map.getAudio());
+		terminated = true;
+		AudioPlayer.stopLongAudio(info.getAudio());
 		AudioPlayer.terminate();
-		timer.stop();
+		stopLoop();
+		reportFrameTimes();
 		mainFrame.dispose();
 	}
+	
+	/**
+	 * Prints how long frames took to draw, and which way they were drawn
+	 */
+	private void reportFrameTimes(){
+		System.out.println(mainPanel.getFrameStats().report(Options.GAME_ACTIVE_RENDERING ? "Active rendering" : "Swing rendering"));
+	}
 
 	/**
 	 * Handles key actions
@@ -289,47 +460,59 @@ public class Game {
 		// If it was escape, open the pause menu
 		if(e.getKeyChar() == KeyEvent.VK_ESCAPE){
 			doPause();
+			return;
 		}
 		
 		// If a keyevent was passed but it wasn't one of the game keys or the escape key, return,
 		if(e.getKeyChar() != Options.GAME_KEY_1 && e.getKeyChar() != Options.GAME_KEY_2) return;
-
-		// If a key was pressed, set the 'mouse' to be down and check for elements it could be down on
-		if(e.getID() == KeyEvent.KEY_PRESSED && mouseDown == false){
-			mouseDown = true;
-			elementCheck(mouseX, mouseY);
-		}
-
-		// If it was released, the mouse is no longer down and sliders should be checked
-		else if(e.getID() == KeyEvent.KEY_RELEASED && mouseDown == true){
-			mouseDown = false;
-			if(activeSlider != null){
-				endSliderDrag();
-			}
-		}
+		
+		// Otherwise leave it for the simulation; the keys act at wherever the mouse is by then
+		if(e.getID() == KeyEvent.KEY_PRESSED)
+			inputQueue.offer(InputQueue.KEY_PRESS, -1, -1, getEventTime(e));
+		else if(e.getID() == KeyEvent.KEY_RELEASED)
+			inputQueue.offer(InputQueue.KEY_RELEASE, -1, -1, getEventTime(e));
+	}
+	
+	/**
+	 * Returns when (System.nanoTime()) an input event happened. Events carry their
+	 * time only to the ms and on the wall clock, so this takes the time now and
+	 * winds it back by however long the event has been waiting to be dispatched.
+	 */
+	private static long getEventTime(InputEvent e){
+		long now = System.nanoTime();
+		long waited = System.currentTimeMillis() - e.getWhen();
+		// The wall clock can be changed under us; if so, just use the time now
+		if(waited < 0 || waited > 1000) waited = 0;
+		return now - waited*1000000;
 	}
 	
 	/**
 	 * Opens the pause menu and pauses the game
 	 */
 	private void doPause(){
+		// Stop the game first, so that the game loop isn't drawing while the canvas goes away,
+		// or stepping while the clock is paused under it
+		stopLoop();
+		// Handle what the player did before pausing now, while its times still convert to map times;
+		// after the pause they would land the length of the pause too early
+		processInput(Long.MAX_VALUE);
+		clock.pause();
+		
 		// Swap the graphics around
 		pauseMenu = new GamePauseMenu();
 		pauseMenu.init(this);
 		pauseMenu.setVisible(true);
 		
-		mainFrame.remove(mainPanel);
+		mainFrame.remove(gameSurface);
 		mainFrame.add(pauseMenu, BorderLayout.CENTER);
 		
 		mainFrame.revalidate();
 		pauseMenu.repaint();
 		
-		// Stop the timer, remove the listeners and pause the audio
-		pauseStartTime = System.currentTimeMillis();
-		timer.stop();
-		mainPanel.removeMouseListener(mouseListener);
-		mainPanel.removeMouseMotionListener(mouseListener);
-		mainPanel.removeKeyListener(keyListener);
+		// Remove the listeners and pause the audio
+		gameSurface.removeMouseListener(mouseListener);
+		gameSurface.removeMouseMotionListener(mouseListener);
+		gameSurface.removeKeyListener(keyListener);
 		AudioPlayer.pauseLongAudio();
 	}
 	
@@ -340,19 +523,19 @@ public class Game {
 		// Swap the graphics around
 		mainFrame.remove(pauseMenu);
 		pauseMenu = null;
-		mainFrame.add(mainPanel, BorderLayout.CENTER);
+		mainFrame.add(gameSurface, BorderLayout.CENTER);
 		mainFrame.revalidate();
 		
-		// Resume the audio, listeners and timer
+		// Resume the audio, listeners and game
 		AudioPlayer.resumeLongAudio();
-		mainPanel.addMouseListener(mouseListener);
-		mainPanel.addMouseMotionListener(mouseListener);
-		mainPanel.addKeyListener(keyListener);
-		mainPanel.requestFocus();
+		gameSurface.addMouseListener(mouseListener);
+		gameSurface.addMouseMotionListener(mouseListener);
+		gameSurface.addKeyListener(keyListener);
+		gameSurface.requestFocus();
 		
-		// Change the total time spent paused so that we know where we're up to in the map
-		pauseDelay += System.currentTimeMillis() - pauseStartTime;
-		timer.start();
+		// Carry on the map time from where it was paused
+		clock.resume();
+		startLoop();
 	}
 	
 	/**
@@ -360,19 +543,77 @@ public class Game {
 	 */
 	public void restart(){
 		terminate();
-		new Game(map, modsActive);
+		new Game(info, modsActive);
 	}
 
 	/**
-	 * Handles mouse actions
+	 * Handles mouse actions, by leaving them for the simulation
 	 */
 	private void doMouse(MouseEvent e){
+		int type;
+		if(e.getID() == MouseEvent.MOUSE_PRESSED) type = InputQueue.MOUSE_PRESS;
+		else if(e.getID() == MouseEvent.MOUSE_RELEASED) type = InputQueue.MOUSE_RELEASE;
+		else type = InputQueue.MOUSE_MOVE;
+		
+		inputQueue.offer(type, e.getX(), e.getY(), getEventTime(e));
+	}
+	
+	/**
+	 * Handles all input which happened up to the current map time, in the order it happened
+	 */
+	private void processInput(){
+		// The system time of the current map time
+		processInput(clock.getNanoTime(currentMapTime));
+	}
+	
+	/**
+	 * Handles all input which happened up to the given system time (ns), in the order it happened
+	 */
+	private void processInput(long latestTime){
+		while(inputQueue.poll(latestTime)){
+			// Anything from before a skip happened before the current time, not before the skipped to time
+			inputTime = Math.min(clock.getMapTime(inputQueue.getTime()), currentMapTime);
+			
+			switch(inputQueue.getType()){
+				case InputQueue.KEY_PRESS:
+				case InputQueue.KEY_RELEASE:
+					doKeyInput(inputQueue.getType() == InputQueue.KEY_PRESS);
+					break;
+				default:
+					doMouseInput(inputQueue.getType(), inputQueue.getX(), inputQueue.getY());
+			}
+		}
+	}
+	
+	/**
+	 * Handles one of the game keys being pressed or released
+	 */
+	private void doKeyInput(boolean pressed){
+		// If a key was pressed, set the 'mouse' to be down and check for elements it could be down on
+		if(pressed && mouseDown == false){
+			mouseDown = true;
+			elementCheck(mouseX, mouseY);
+		}
+
+		// If it was released, the mouse is no longer down and sliders should be checked
+		else if(!pressed && mouseDown == true){
+			mouseDown = false;
+			if(activeSlider != null){
+				endSliderDrag();
+			}
+		}
+	}
+	
+	/**
+	 * Handles the mouse being moved, pressed or released
+	 */
+	private void doMouseInput(int type, int x, int y){
 		// Find the new co-ordinates of the mouse
-		mouseX = e.getX();
-		mouseY = e.getY();
+		mouseX = x;
+		mouseY = y;
 
 		// If it was pressed,
-		if(e.getID() == MouseEvent.MOUSE_PRESSED){
+		if(type == InputQueue.MOUSE_PRESS){
 			mouseDown = true;
 			// Check current elements to see which one it's on (if any)
 			elementCheck(mouseX, mouseY);
@@ -390,7 +631,7 @@ public class Game {
 		}
 
 		// Otherwise, if it was released, check if it was on a slider
-		else if(e.getID() == MouseEvent.MOUSE_RELEASED){
+		else if(type == InputQueue.MOUSE_RELEASE){
 			mouseDown = false;
 			if(activeSlider != null){
 				endSliderDrag();
@@ -408,7 +649,7 @@ public class Game {
 
 	/**
 	 * Checks to see that the mouse is down and on the required position on the active slider,
-	 * and increments the active's slider points if it is.
+	 * and adds the length of a step to the active slider's points if it is.
 	 */
 	private void changeActiveSliderPoints(){
 		// Don't do anything if there isn't a slider active!
@@ -425,7 +666,7 @@ public class Game {
 		double offset = Math.sqrt(Math.pow(mouseX-reqX, 2) + Math.pow(mouseY-reqY, 2));
 
 		if(offset < circleSize/2){
-			activeSlider.sliderPoints++;
+			sliderPoints[activeSlider.getId()] += STEP_TIME;
 		}
 	}
 
@@ -433,45 +674,19 @@ public class Game {
 	 * Processes a click or key press at the specified position
 	 */
 	private void elementCheck(int x, int y){
-		// Scroll through all the circles which are currently on the screen
-		Iterator<Element> iter = currentElements.iterator();
-		ArrayList<Element> elementsToRemove = new ArrayList<Element>();
-
-		while(iter.hasNext()){
-			Element element = iter.next();
-			// Circles:
-			if(element.getElementType() == 1){
-				// If they are very close to the mouse click, remove the circle
-				double radius = Math.sqrt(Math.pow(x-element.getX(),2) + Math.pow(y-element.getY(),2));
-				if(radius < circleSize/2){
-					elementsToRemove.add(element);
-					break;
-				}
-			}
-			// Sliders:
-			if(element.getElementType() == 2){
-				Slider slider = (Slider)element;
-				// Make it the active slider if the mouse is on the follow circle
-				int sliderFollowX = (int)(slider.getX() + slider.followCirclePos * Math.cos(slider.getAngle()));
-				int sliderFollowY = (int)(slider.getY() + slider.followCirclePos * Math.sin(slider.getAngle()));
-				double radius = Math.sqrt(Math.pow(x-sliderFollowX,2) + Math.pow(y-sliderFollowY,2));
-				if(radius < circleSize/2){
-					activeSlider = (Slider)element;
-					break;
-				}
-			}
-		}
+		// Only the elements near the click are looked at; if several are hit, the oldest is
+		int id = hitGrid.findHit(x, y, inputTime);
+		if(id == -1) return;
 
-		Element e = null;
-		// Find the element that has spent the longest time on the screen
-		for(Element element : elementsToRemove){
-			if(e == null || element.getTime() < e.getTime()){
-				e = element;
-			}
+		Element element = activeElements.get(id);
+		// Circles: remove the circle
+		if(element.getElementType() == 1){
+			removeElement(element, true);
+		}
+		// Sliders: make it the active slider, as the mouse is on the follow circle
+		else if(element.getElementType() == 2){
+			activeSlider = (Slider)element;
 		}
-
-		// And remove it
-		if(e != null) removeElement(e, true);
 	}
 
 	/**
@@ -480,19 +695,18 @@ public class Game {
 	 * @param wasClicked If the element was clicked to remove or not (if not, it must have timed out)
 	 */
 	private void removeElement(Element element, boolean wasClicked){
-		if(element == null) { return; }
+		// Each element is only judged once, however many ways it's removed
+		if(element == null || !activeElements.remove(element.getId())) { return; }
+		hitGrid.remove(element.getId());
 		
 		currentElement++;
 
 		int classification = 0;
 
-		// Dequeue the element
-		mainPanel.dequeueElement(element);
-
 		if(element.getElementType() == 1){
 			// Figure out the time offset for circles
 			int supposedTime = element.getTime();
-			long timeOffset = Math.abs(currentMapTime - supposedTime);
+			double timeOffset = Math.abs(inputTime - supposedTime);
 
 			if(wasClicked){
 				if(timeOffset < timeOffsets[0]) classification = 0;
@@ -513,35 +727,37 @@ public class Game {
 			// Figure out the amount of points accrued for sliders
 			int totalSliderTime = slider.getEndTime() - slider.getTime();
 			// If the slider isn't being dragged at the end, remove some points
-			if(activeSlider != null && !slider.equals(activeSlider)) slider.sliderPoints *= 0.8;
+			int points = sliderPoints[slider.getId()];
+			if(activeSlider != null && !slider.equals(activeSlider)) points *= 0.8;
 
-			if(slider.sliderPoints > (totalSliderTime+0.0)/20 * 0.9) classification = 0; // 90% of time held to get 300
-			else if(slider.sliderPoints > (totalSliderTime+0.0)/20 * 0.7) classification = 1; // 70% to get 100
-			else if(slider.sliderPoints > (totalSliderTime+0.0)/20 * 0.5) classification = 2; // 50% to get 50
+			if(points > totalSliderTime * 0.9) classification = 0; // 90% of time held to get 300
+			else if(points > totalSliderTime * 0.7) classification = 1; // 70% to get 100
+			else if(points > totalSliderTime * 0.5) classification = 2; // 50% to get 50
 			else classification = 3;
 		}
 		
 		// Play the combo break sound if necessary, and break the combo if they miss
 		if(classification == 3){
 			if(combo > MIN_COMBO_FOR_BREAK)
-				AudioPlayer.playClip(Options.SKIN_COMBO_BREAK_SOUND, COMBO_BREAK_VOLUME);
+				AudioPlayer.playClip(comboBreakSound, COMBO_BREAK_VOLUME);
 			
 			combo = 0;
 		}
 		// Otherwise increment the current combo and play the hit sound
 		else{
-			AudioPlayer.playClip(Options.SKIN_CIRCLE_HIT_SOUND, HIT_SOUND_VOLUME);
+			AudioPlayer.playClip(hitSound, HIT_SOUND_VOLUME);
 			combo++;
 		}
 			
 		// Change score, health and accuracy
 		processElementRemoval(classification);
-
-		// And finally, remove the element from currentelements
-		currentElements.remove(element);
 		
+		// Tell the drawing that it's been judged; if the queue is full, the drawing
+		// lets go of the element instead once it sees it's no longer active
+		mainPanel.getJudgmentQueue().offer(element);
+
 		// If the map has no more elements and there are none on the screen, then it is finished!
-		if(map.peek() == null && currentElements.isEmpty())
+		if(scheduler.isFinished() && activeElements.isEmpty())
 			finishMap();
 	}
 
@@ -566,12 +782,59 @@ public class Game {
 		accuracy = (double)(scoreCounts[0]*100 + scoreCounts[1]*100/3 + scoreCounts[2] * 100/6) / currentElement;
 	}
 
+	/**
+	 * Advances the game and draws it onto the given graphics; used by the
+	 * game loop thread when actively rendering, in place of doGame().
+	 */
+	public void doFrame(Graphics2D g2d, int width, int height){
+		advance();
+		setGuiAttributes();
+		mainPanel.render(g2d, width, height);
+	}
+	
 	/**
 	 * Handles the game loop
 	 */
 	private void doGame(){
-		// Evaluate the new time
-		currentMapTime = (int)(System.currentTimeMillis()-pauseDelay-mapStartTime+skippedTime);
+		// Simulate up to the current time
+		advance();
+		
+		// Update the gui attributes
+		setGuiAttributes();
+
+		// Render
+		mainPanel.repaint();
+	}
+	
+	/**
+	 * Simulates as many steps as it takes to catch up to the current time,
+	 * and works out the time to draw; between the last step and the next one.
+	 */
+	private void advance(){
+		// Find the time in the map that it should be now
+		long now = System.nanoTime();
+		clock.update(now);
+		double targetTime = clock.getMapTime(now);
+		
+		int steps = 0;
+		while(!finished && currentMapTime + STEP_TIME <= targetTime && steps < MAX_CATCH_UP_STEPS){
+			previousHealth = health;
+			step();
+			steps++;
+		}
+		
+		// Interpolate between the last step and the next
+		renderTime = Math.max(currentMapTime, Math.min(targetTime, currentMapTime + STEP_TIME));
+	}
+	
+	/**
+	 * Simulates a single step of the game
+	 */
+	private void step(){
+		currentMapTime += STEP_TIME;
+		
+		// Catch up on everything the player has done
+		processInput();
 
 		// Update the active slider
 		if(mouseDown) changeActiveSliderPoints();
@@ -582,7 +845,7 @@ public class Game {
 		else{
 			// Check if any elements should be removed
 			checkDisposal();
-			// Check if the next circle in the map should be shown
+			// Check if any more circles in the map should be shown
 			evaluateNext();
 			// Draw all circles left in the queue
 			drawQueue();
@@ -596,21 +859,15 @@ public class Game {
 				if(breakEndTime < currentMapTime)
 					breakActive = false;
 		}
-		
-		// Update the gui attributes
-		setGuiAttributes();
-
-		// Render
-		mainPanel.repaint();
 	}
 	
 	/**
 	 * If we're in the initial break, increases the health by the appropriate amount
 	 */
 	private void processInitialBreak(){
-		health += 100*(double)Options.GAME_TICK_TIME/initialBreakEnd;
-		// If it's the last tick of the initial break, remove the skip button
-		if(currentMapTime + Options.GAME_TICK_TIME > initialBreakEnd){
+		health += 100*(double)STEP_TIME/initialBreakEnd;
+		// If it's the last step of the initial break, remove the skip button
+		if(currentMapTime + STEP_TIME > initialBreakEnd){
 			mainPanel.removeSkipButton();
 		}
 	}
@@ -619,7 +876,11 @@ public class Game {
 	 * Skips past the initial break to the start of gameplay (almost)
 	 */
 	private void skipIntro(){
-		skippedTime = initialBreakEnd - 1000 - currentMapTime;
+		int skip = initialBreakEnd - 1000 - currentMapTime;
+		// Jump straight there rather than simulating every step in between; the clock moves the audio along too
+		clock.skip(skip);
+		currentMapTime += skip;
+		scheduler.jumpTo(currentMapTime);
 	}
 	
 	/**
@@ -627,7 +888,7 @@ public class Game {
 	 * IFF there isn't currently a break.
 	 */
 	private void reduceHealth(){
-		if(!breakActive) health -= healthLoss;
+		if(!breakActive) health -= healthLoss*STEP_TIME/1000;
 	}
 
 	/**
@@ -635,8 +896,10 @@ public class Game {
 	 */
 	private void setGuiAttributes(){
 		mainPanel.setScore(score);
-		mainPanel.setHealth(health);
+		// Health changes continuously, so draw it between the last two steps
+		mainPanel.setHealth(previousHealth + (health - previousHealth)*(renderTime - currentMapTime)/STEP_TIME);
 		mainPanel.setAccuracy(accuracy);
+		mainPanel.setCombo(combo);
 	}
 
 	/**
@@ -644,39 +907,40 @@ public class Game {
 	 * And removes them if they should be
 	 */
 	private void checkDisposal(){
-		// Grab the queue of elements that should be disposed
-		Queue<Element> disposalQueue = mainPanel.getDisposalQueue();
-		// And remove them all
-		while(!disposalQueue.isEmpty()){
-			removeElement(disposalQueue.poll(), false);
+		for(int id = activeElements.getFirstId(); id < activeElements.getEndId(); id++){
+			Element element = activeElements.get(id);
+			if(element != null && isExpired(element)){
+				removeElement(element, false);
+			}
 		}
 	}
 
 	/**
-	 * Checks to see if the next element in the map's queue should be displayed.
-	 * Adds it to the queue if it should be.
+	 * Returns whether an element has timed out at the current map time;
+	 * circles once they are past the accuracy for a 50, sliders once they end.
 	 */
-	private void evaluateNext(){
-		// There might still be elements on the screen even if there aren't any in the map
-		if(map.peek() == null)
-			return;
+	private boolean isExpired(Element element){
+		if(element.getElementType() == 1) return currentMapTime > element.getTime() + timeOffsets[2];
+		if(element.getElementType() == 2) return currentMapTime >= ((Slider)element).getEndTime();
+		return false;
+	}
 
-		int nextTime = map.peek().getTime();
-		if(nextTime == -1) return;
+	/**
+	 * Finds every element in the map which should now be displayed, and adds
+	 * them all to the queue; however many became due since the last tick.
+	 */
+	private void evaluateNext(){
+		// Add every circle and slider within the approach time to the queue of elements to display
+		int next;
+		while((next = scheduler.nextDueHit(currentMapTime)) != -1){
+			elements.add(hitObjects.getElement(next));
+		}
 		
-		// If it's within the time range where it should appear
-
-		// If it's a break, we want to process it as such (without the approach time)
-		if(map.peek().getElementType() == 3){
-			if(nextTime < currentMapTime){
-				breakActive = true;
-				breakEndTime = ((Break)map.peek()).getEndTime();
-				map.poll();
-			}
+		// Breaks don't have an approach time; they just start when they start
+		while((next = scheduler.nextDueBreak(currentMapTime)) != -1){
+			breakActive = true;
+			breakEndTime = hitObjects.getEndTime(next);
 		}
-		// Otherwise add the element to the queue of elements to display (and remove it from the map)
-		else if(nextTime - currentMapTime < approachTime)
-			elements.add(map.poll());
 	}
 
 	/**
@@ -684,14 +948,26 @@ public class Game {
 	 */
 	private void drawQueue(){
 		for(Element e : elements){
-			e.setId(currentElementId);
-			mainPanel.queueElement(e);
-			currentElements.add(e);
-			currentElementId++;
+			activeElements.add(e);
+			hitGrid.add(e.getId());
 		}
 		elements.clear();
 	}
 
+	/**
+	 * Returns all elements of the map being played
+	 */
+	public HitObjects getHitObjects(){
+		return hitObjects;
+	}
+
+	/**
+	 * Returns the elements which are currently being displayed
+	 */
+	public ActiveElements getActiveElements(){
+		return activeElements;
+	}
+
 	/**
 	 * Returns the current time in the map
 	 */
@@ -706,20 +982,71 @@ public class Game {
 		return currentMapTime;
 	}
 	
+	/**
+	 * Returns the time in the map which should be drawn; this is between
+	 * the last simulated step and the next, so that drawing is smooth
+	 * however the steps and frames line up.
+	 */
+	public double getRenderTime(){
+		return renderTime;
+	}
+	
+	/**
+	 * Returns whether the map has been finished.
+	 */
+	public boolean isFinished(){
+		return finished;
+	}
+	
+	/**
+	 * Ends the currently playing map early, as the game loop has failed;
+	 * brings up the end of map screen rather than leaving the game frozen.
+	 */
+	public void abortMap(){
+		if(finished || terminated) return;
+		finishMap();
+	}
+	
 	/**
 	 * Ends the currently playing map;
 	 * Brings up the end of map screen
 	 */
 	private void finishMap(){
+		finished = true;
+		
+		// The game loop thread finishes the map while drawing; the rest has to be done on the event dispatch thread
+		if(!SwingUtilities.isEventDispatchThread()){
+			SwingUtilities.invokeLater(new Runnable(){
+				public void run(){
+					showEndScreen();
+				}
+			});
+		}
+		else{
+			showEndScreen();
+		}
+	}
+	
+	/**
+	 * Stops the game and brings up the end of map screen
+	 */
+	private void showEndScreen(){
 		// Stop the game
-		AudioPlayer.stopLongAudio(map.getAudio());
+		AudioPlayer.stopLongAudio(info.getAudio());
 		AudioPlayer.terminate();
-		timer.stop();
+		stopLoop();
+		reportFrameTimes();
+		
+		System.out.println(String.format("Elements were shown at most %d ms (%.1f ms on average) after they were due",
+				scheduler.getMaxLag(), scheduler.getAverageLag()));
+		System.out.println(clock.getReport());
+		if(inputQueue.getDroppedCount() > 0)
+			System.out.println(inputQueue.getDroppedCount() + " input events were dropped, as they came faster than they could be handled");
 		
 		// Remove the listeners
-		mainPanel.removeMouseListener(mouseListener);
-		mainPanel.removeMouseMotionListener(mouseListener);
-		mainPanel.removeKeyListener(keyListener);
+		gameSurface.removeMouseListener(mouseListener);
+		gameSurface.removeMouseMotionListener(mouseListener);
+		gameSurface.removeKeyListener(keyListener);
 		
 		// Switch the game panel out for the end of game panel
 		endScreen = new GameEndScreen();
@@ -1,11 +1,8 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
 
 /**
@@ -30,27 +27,30 @@ public class GameDraw extends JPanel{
 	private double health = 100;
 	// The accuracy which the player currently has; different to accuracy above
 	private double currentAccuracy = 0;
+	// The current combo
+	private int combo = 0;
 
-	// The list of circles to be drawn
-	private java.util.List<Circle> circles = new ArrayList<Circle>();
-	// The list of sliders to be drawn
-	private java.util.List<Slider> sliders = new ArrayList<Slider>();
+	// The elements to be drawn; the game's table of the elements on screen
+	private ActiveElements elements;
+	// Each slider's body (its outline and end circles), drawn once when it first appears, and
+	// where on screen its top left goes, by element ID; null while the slider isn't on screen
+	private BufferedImage[] sliderBodies;
+	private int[] sliderBodyX;
+	private int[] sliderBodyY;
+	// Every element before this ID has had its body let go of, if it had one
+	private int releasedId = 0;
 
-	// The queue of elements that should be disposed of because they have timed out
-	private Queue<Element> disposalElements = new LinkedList<Element>();
+	// Elements which the game has judged, and so no longer need to be drawn
+	private ElementEventQueue judgedElements = new ElementEventQueue();
 	
 	private boolean skipButtonActive = true;
 	
-	// Images for the various elements that need to be drawn
-	private BufferedImage approachCircleImage;
-	private BufferedImage circleImage;
-	private BufferedImage outerCircleImage;
-	private BufferedImage circleBorderImage;
-	private BufferedImage sliderFollowCircleImage;
+	// The hit object images, scaled to this game's circle size; made in init
+	private SpriteCache sprites;
 	
-	private BufferedImage[] numberImage;
-	private BufferedImage dotImage;
-	private BufferedImage percentImage;
+	// Images for the various elements that need to be drawn
+	// Draws the score, accuracy and combo
+	private HudRenderer hud;
 	
 	private BufferedImage healthBarImage3;
 	private BufferedImage healthBarImage2;
@@ -72,104 +72,126 @@ public class GameDraw extends JPanel{
 	private int skipButtonY;
 	private int skipButtonY2;
 
-	private long previousTime;
+	// Whether init has been called; nothing is drawn until the game has loaded
+	private boolean initialised = false;
+	
+	// The size of the area being drawn on; as of the last frame
+	private int drawWidth;
+	private int drawHeight;
+	
+	// The times between frames which were drawn
+	private FrameStats frameStats = new FrameStats();
 
 	/**
 	 * Initialises map attributes and provides the instance of game
 	 */
-	public void init(int circleSize, int approachRate, int overallDifficulty, Game game){
+	public void init(int circleSize, int approachRate, int overallDifficulty, SpriteCache sprites, Game game){
 		this.circleSize = circleSize;
 		this.approachRate = approachRate;
 		this.accuracy = overallDifficulty;
 		this.game = game;
-		approachSize = this.circleSize*2;
-		previousTime = System.currentTimeMillis();
-		initImages();
+		this.elements = game.getActiveElements();
+		int elementCount = game.getHitObjects().size();
+		sliderBodies = new BufferedImage[elementCount];
+		sliderBodyX = new int[elementCount];
+		sliderBodyY = new int[elementCount];
+		approachSize = getApproachSize(this.circleSize);
+		this.sprites = sprites;
+		initialised = true;
 	}
 	
 	/**
-	 * Initialises the various images
+	 * Scales the hit object sprites for the given circle size, to be passed to init;
+	 * can be done on any thread, but the skin must have been loaded first.
 	 */
-	private void initImages(){
-		try{
-			approachCircleImage = ImageIO.read(new File(Options.SKIN_APPROACH_CIRCLE));
-			circleImage = ImageIO.read(new File(Options.SKIN_HIT_CIRCLE));
-			outerCircleImage = ImageIO.read(new File(Options.SKIN_HIT_CIRCLE_OUTER));
-			circleBorderImage = ImageIO.read(new File(Options.SKIN_HIT_CIRCLE_BORDER));
-			
-			sliderFollowCircleImage = ImageIO.read(new File(Options.SKIN_SLIDER_FOLLOW_CIRCLE));
-			
-			dotImage = ImageIO.read(new File(Options.SKIN_DOT));
-			percentImage = ImageIO.read(new File(Options.SKIN_PERCENT));
-			
-			healthBarImage3 = ImageIO.read(new File(Options.SKIN_HEALTHBAR_3));
-			healthBarImage2 = ImageIO.read(new File(Options.SKIN_HEALTHBAR_2));
-			healthBarImage1 = ImageIO.read(new File(Options.SKIN_HEALTHBAR_1));
-			
-			numberImage = new BufferedImage[10];
-			for(int i = 0; i < 10; i++){
-				numberImage[i] = ImageIO.read(new File(Options.SKIN_NUMBER_BASE + i + Options.SKIN_NUMBER_END));
-			}
-			
-			skipButtonImage = ImageIO.read(new File(Options.SKIN_SKIP_BUTTON_IMAGE));
-			
-		}
-		catch(IOException e){
-			System.err.println("Could not read from skin image files! " + e);
-		}
+	public static SpriteCache createSprites(int circleSize){
+		return new SpriteCache(circleSize, getApproachSize(circleSize));
+	}
+	
+	/**
+	 * Returns the size that approach circles start at, for the given circle size.
+	 */
+	private static int getApproachSize(int circleSize){
+		return circleSize*2;
+	}
+	
+	/**
+	 * Fetches the various images from the skin cache; can be done on any thread, but must be done before init
+	 */
+	public void loadImages(){
+		healthBarImage3 = SkinCache.get(Options.SKIN_HEALTHBAR_3);
+		healthBarImage2 = SkinCache.get(Options.SKIN_HEALTHBAR_2);
+		healthBarImage1 = SkinCache.get(Options.SKIN_HEALTHBAR_1);
+		
+		hud = new HudRenderer();
+		
+		skipButtonImage = SkinCache.get(Options.SKIN_SKIP_BUTTON_IMAGE);
 	}
 
 	@Override
 	public void paintComponent(Graphics g){
+		render((Graphics2D)g, getWidth(), getHeight());
+		frameStats.frame();
+	}
+	
+	/**
+	 * Draws a frame of the game. This is used both when Swing paints this
+	 * panel and when a GameLoop draws straight onto a canvas.
+	 * @param g2d The graphics to draw on.
+	 * @param width The width of the area to draw.
+	 * @param height The height of the area to draw.
+	 */
+	public void render(Graphics2D g2d, int width, int height){
 		// TODO change elements to be at a % of screen width/height, and to have a % size, so that windowed mode / differing resolutions are possible
-		Graphics2D g2d = (Graphics2D)g;
+		drawWidth = width;
+		drawHeight = height;
 		// Clear current graphics
 		g2d.setColor(Color.BLACK);
-		g2d.fillRect(0,0,this.getWidth(),this.getHeight());
+		g2d.fillRect(0,0,width,height);
+		if(!initialised) return;
+		
+		// Let go of anything kept for elements which have been judged since the last frame
+		while(judgedElements.poll()){
+			dequeueElement(judgedElements.getElement());
+		}
+		// And for any which didn't fit in the queue, once they're no longer active
+		for(; releasedId < elements.getFirstId(); releasedId++){
+			releaseSliderBody(releasedId);
+		}
 
-		// Figure out how much time has elapsed since last time
-		long currentTime = game.getCurrentMapTime();
-		long dT = currentTime - previousTime;
+		// Everything is drawn as it should be at this time; nothing is changed by drawing,
+		// so frames can be drawn as often or as rarely as need be
+		double currentTime = game.getRenderTime();
 
 		// Draw every circle and its approach circle
-
-		// Size reduction amount
-		double circleLoss = (double)(dT * (approachSize-circleSize))/approachRate;
-		previousTime = currentTime;
-
-		// Reduce each approach circle by the size and then draw the circle
-		for(Circle next : circles){
-			// Decrease the size of every approach circle
-			next.approachCircleSize -= circleLoss;
-			// Draw the circle
-			drawCircleElement(g2d, next);
+		for(int id = elements.getFirstId(); id < elements.getEndId(); id++){
+			Element next = elements.get(id);
+			if(next == null || next.getElementType() != 1) continue;
+			drawCircleElement(g2d, (Circle)next, currentTime);
 		}
 
 		// Next, draw all sliders
-		for(Slider next : sliders){
-			drawSliderElement(g2d, next, dT);
+		for(int id = elements.getFirstId(); id < elements.getEndId(); id++){
+			Element next = elements.get(id);
+			// Gaps are elements already removed; a slider's body may still be kept if its judgment didn't fit in the queue
+			if(next == null){
+				releaseSliderBody(id);
+				continue;
+			}
+			if(next.getElementType() != 2) continue;
+			drawSliderElement(g2d, (Slider)next, currentTime);
 		}
 
 		drawGUI(g2d);
-		
-		previousTime = currentTime;
 	}
 
+	/**
+	 * Draws the score, health, accuracy, combo and skip button. The numbers are
+	 * only redrawn by the HudRenderer when they change, so this creates nothing.
+	 */
 	public void drawGUI(Graphics2D g2d){
-		// Draw the score
-		String strScore = Integer.toString(score);
-		// Start at the right
-		int scoreYOffset = 15;
-		int scoreXOffset = 15;
-		int currentX = this.getWidth()-scoreXOffset;
-		for(int i = strScore.length()-1; i >= 0; i--){
-			// Well, it turns out that getting an integer value for one place in an integer
-			// isn't that simple. First, we get the appropriate character from the string,
-			// then get the toString of that, and finally parse that string as an int...
-			BufferedImage img = numberImage[Integer.parseInt(((Character)(strScore.charAt(i))).toString())];
-			g2d.drawImage(img, currentX-img.getWidth(), scoreYOffset, currentX, scoreYOffset+img.getHeight(), 0, 0, img.getWidth(), img.getHeight(), this);
-			currentX -= img.getWidth()+5;
-		}
+		// Draw the score, from the right
+		hud.drawScore(g2d, score, drawWidth-15, 15);
 		
 		// Draw the health
 		{
@@ -181,31 +203,18 @@ public class GameDraw extends JPanel{
 			g2d.drawImage(img, 0, 0, (int)(health*12), img.getHeight(), 0, 0, img.getWidth(), img.getHeight(), this);
 		}
 		
-		// Draw the accuracy
-		String strAcc = String.format("%.2f",currentAccuracy);
-		int accYOffset = 80;
-		int accXOffset = 15;
-		currentX = this.getWidth()-accXOffset;
+		// Draw the accuracy, with a percent sign at the end
+		hud.drawAccuracy(g2d, currentAccuracy, drawWidth-15, 80);
 		
-		// Draw a percent sign at the end
-		g2d.drawImage(percentImage, currentX-percentImage.getWidth()/2, accYOffset, currentX, accYOffset+percentImage.getHeight()/2, 0, 0, percentImage.getWidth(), percentImage.getHeight(), this);
-		currentX -= percentImage.getWidth()/2 + 5;
-		for(int i = strAcc.length()-1; i >= 0; i--){
-			BufferedImage img;
-			// If it's a dot, obviously we can't parse it as an int..
-			if(strAcc.charAt(i) == '.') img = dotImage;
-			else img = numberImage[Integer.parseInt(((Character)(strAcc.charAt(i))).toString())];
-			
-			g2d.drawImage(img, currentX-img.getWidth()/2, accYOffset, currentX, accYOffset+img.getHeight()/2, 0, 0, img.getWidth(), img.getHeight(), this);
-			currentX -= img.getWidth()/2 + 5;
-		}
+		// Draw the combo in the bottom left
+		hud.drawCombo(g2d, combo, 15, drawHeight-15);
 		
 		// If the skip button is active, draw it
 		if(skipButtonActive){
-			skipButtonX = getWidth()-skipButtonImage.getWidth()-50;
-			skipButtonX2 = getWidth()-50;
-			skipButtonY = getHeight()-skipButtonImage.getHeight()-50;
-			skipButtonY2 = getHeight()-50;
+			skipButtonX = drawWidth-skipButtonImage.getWidth()-50;
+			skipButtonX2 = drawWidth-50;
+			skipButtonY = drawHeight-skipButtonImage.getHeight()-50;
+			skipButtonY2 = drawHeight-50;
 			g2d.drawImage(skipButtonImage, skipButtonX, skipButtonY, skipButtonX2, skipButtonY2, 0, 0, skipButtonImage.getWidth(), skipButtonImage.getHeight(), this);
 		}
 	}
@@ -224,6 +233,13 @@ public class GameDraw extends JPanel{
 		this.health = health;
 	}
 	
+	/**
+	 * Sets the combo to draw
+	 */
+	public void setCombo(int combo){
+		this.combo = combo;
+	}
+	
 	/**
 	 * Sets the accuracy to draw
 	 */
@@ -232,28 +248,25 @@ public class GameDraw extends JPanel{
 	}
 
 	/**
-	 * Draws a circle element along with its approach circle
+	 * Draws a circle element along with its approach circle, as they should be at the given map time
 	 */
-	private void drawCircleElement(Graphics2D g2d, Circle circle){
-		// Check if the circle is supposed to disappear
-		// (Which we can tell from the approach circle size compared to the normal circle size, the accuracy required, and the approach rate
-		if(circle.approachCircleSize < circleSize - accuracy*(approachSize-circleSize)/approachRate){
-			// If it is supposed to disappear, add it to the disposal queue and don't draw it
-			disposalElements.offer(circle);
-			return;
-		}
+	private void drawCircleElement(Graphics2D g2d, Circle circle, double mapTime){
+		// The approach circle shrinks steadily from the approach size, reaching the circle's size when it should be clicked
+		double approachCircleSize = circleSize + (approachSize-circleSize)*(circle.getTime()-mapTime)/approachRate;
+
+		// The game removes circles once they are past the accuracy required; until then, it may still be drawn after it
+		if(approachCircleSize < circleSize - accuracy*(approachSize-circleSize)/approachRate) return;
 
 		// If the approach circle would be smaller than the circle, we don't actually want to draw it, but we do want to start fading the circle out
-		if(circle.approachCircleSize > circleSize){
-			// Draw the approach circle if not
-			double approachX = circle.getX()-circleSize/2-(circle.approachCircleSize-circleSize)/2;
-			double approachY = circle.getY()-circleSize/2-(circle.approachCircleSize-circleSize)/2;
-			g2d.drawImage(approachCircleImage, (int)approachX, (int)approachY, (int)(approachX+circle.approachCircleSize), (int)(approachY+circle.approachCircleSize), 0, 0, approachCircleImage.getWidth(this), approachCircleImage.getHeight(this), this);
+		if(approachCircleSize > circleSize){
+			// Draw the approach circle if not, at the nearest pre-scaled size
+			BufferedImage approachSprite = sprites.getApproachCircle(approachCircleSize);
+			g2d.drawImage(approachSprite, circle.getX()-approachSprite.getWidth()/2, circle.getY()-approachSprite.getHeight()/2, this);
 		}
 		// Set a fadeout for the circle if need be
 		else{
 			// The time past when the circle was supposed to be clicked
-			double pastTime = (1-circle.approachCircleSize/circleSize) * approachRate;
+			double pastTime = (1-approachCircleSize/circleSize) * approachRate;
 			// A float amount for the fadeout of the circle
 			// This is 1 if the time past when the circle should've been clicked is the maximum accuracy threshold
 			float fadeout = (float)(pastTime / accuracy);
@@ -272,40 +285,81 @@ public class GameDraw extends JPanel{
 	}
 	
 	/**
-	 * Draws an actual circle (with border image, outer image and actual image)
+	 * Draws an actual circle (with border image, outer image and actual image, which are already put together in one sprite)
 	 * @param g2d The graphics to draw the circle on.
 	 * @param x The center x position of the circle to draw.
 	 * @param y The center y position of the circle to draw.
 	 */
 	private void drawCircleImage(Graphics2D g2d, int x, int y){
-		g2d.drawImage(circleBorderImage, x-circleSize/2, y-circleSize/2, x+circleSize/2, y+circleSize/2, 0, 0, circleBorderImage.getWidth(), circleBorderImage.getHeight(), this); 
-		g2d.drawImage(outerCircleImage, x-circleSize, y-circleSize, x+circleSize, y+circleSize, 0, 0, outerCircleImage.getWidth(), outerCircleImage.getHeight(), this); 
-		g2d.drawImage(circleImage, x-circleSize/2, y-circleSize/2, x+circleSize/2, y+circleSize/2, 0, 0, circleImage.getWidth(), circleImage.getHeight(), this);
+		g2d.drawImage(sprites.getHitCircle(), x-circleSize, y-circleSize, this);
 	}
 
 	/**
-	 * Draws a slider, including its end points and follow circle
-	 * @param dT The change in time since the last time of drawing.
+	 * Draws a slider, including its end points and follow circle, as it should be at the given map time
 	 */
-	private void drawSliderElement(Graphics2D g2d, Slider slider, long dT){
-		// Check if the slider is supposed to disappear; if the follow circle has reached the end
-		if(slider.followCirclePos >= slider.getLength()){
-			disposalElements.offer(slider);
-			return;
+	private void drawSliderElement(Graphics2D g2d, Slider slider, double mapTime){
+		// The game removes sliders once they end; until then, it may still be drawn after
+		if(mapTime >= slider.getEndTime()) return;
+
+		// The outline and end circles don't change, so are drawn once, the first time the slider is
+		int id = slider.getId();
+		if(sliderBodies[id] == null) drawSliderBody(slider);
+		g2d.drawImage(sliderBodies[id], sliderBodyX[id], sliderBodyY[id], this);
+
+		// Check if the slider has started yet;
+		// If so, draw a follow circle
+		if(mapTime > slider.getTime()){
+			double followCirclePos = slider.getFollowCirclePos(mapTime);
+			int followX = (int)(slider.getX() + Math.cos(slider.getAngle())*followCirclePos);
+			int followY = (int)(slider.getY() + Math.sin(slider.getAngle())*followCirclePos);
+			
+			// Draw the follow circle
+			g2d.drawImage(sprites.getFollowCircle(), followX-circleSize/2, followY-circleSize/2, this);
+		}
+		// If not, draw an approach circle
+		else{
+			double approachCircleSize = circleSize + ((approachSize-circleSize)*((slider.getTime()-mapTime)/approachRate));
+			g2d.setColor(approachColor);
+			double approachX = slider.getX()-circleSize/2-(approachCircleSize-circleSize)/2;
+			double approachY = slider.getY()-circleSize/2-(approachCircleSize-circleSize)/2;
+			g2d.drawOval((int)approachX, (int)approachY, (int)approachCircleSize, (int)approachCircleSize);
 		}
+	}
+	
+	/**
+	 * Draws a slider's body (its outline and the circles at either end) into an
+	 * image of its own, which is then drawn each frame instead.
+	 */
+	private void drawSliderBody(Slider slider){
+		double angle = slider.getAngle();
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+		int endCircleX = slider.getX() + (int)(slider.getLength()*cos);
+		int endCircleY = slider.getY() + (int)(slider.getLength()*sin);
+
+		// Big enough for the glow around the end circles, which is twice the circle size across
+		int id = slider.getId();
+		sliderBodyX[id] = Math.min(slider.getX(), endCircleX) - circleSize;
+		sliderBodyY[id] = Math.min(slider.getY(), endCircleY) - circleSize;
+		int width = Math.abs(endCircleX - slider.getX()) + circleSize*2 + 1;
+		int height = Math.abs(endCircleY - slider.getY()) + circleSize*2 + 1;
+		sliderBodies[id] = SkinCache.createImage(width, height);
+
+		Graphics2D g2d = sliderBodies[id].createGraphics();
+		g2d.translate(-sliderBodyX[id], -sliderBodyY[id]);
 
 		int strokeSize = 4;
 		// Draw a diagram to understand these points
 		// Depends on the angle of the slider, so we can't just use drawRectangle
-		int x1 = (int)(slider.getX() - Math.sin(slider.getAngle())*(circleSize/2 - strokeSize));
-		int x2 = (int)(slider.getX() + Math.cos(slider.getAngle())*(slider.getLength()) - Math.sin(slider.getAngle())*(circleSize/2 - strokeSize));
-		int x3 = (int)(slider.getX() + Math.sin(slider.getAngle())*(circleSize/2 - strokeSize));
-		int x4 = (int)(slider.getX() + Math.cos(slider.getAngle())*(slider.getLength()) + Math.sin(slider.getAngle())*(circleSize/2 - strokeSize));
+		int x1 = (int)(slider.getX() - sin*(circleSize/2 - strokeSize));
+		int x2 = (int)(slider.getX() + cos*(slider.getLength()) - sin*(circleSize/2 - strokeSize));
+		int x3 = (int)(slider.getX() + sin*(circleSize/2 - strokeSize));
+		int x4 = (int)(slider.getX() + cos*(slider.getLength()) + sin*(circleSize/2 - strokeSize));
 
-		int y1 = (int)(slider.getY() + Math.cos(slider.getAngle())*(circleSize/2 - strokeSize));
-		int y2 = (int)(slider.getY() + Math.sin(slider.getAngle())*(slider.getLength()) + Math.cos(slider.getAngle())*(circleSize/2 - strokeSize));
-		int y3 = (int)(slider.getY() - Math.cos(slider.getAngle())*(circleSize/2 - strokeSize));
-		int y4 = (int)(slider.getY() + Math.sin(slider.getAngle())*(slider.getLength()) - Math.cos(slider.getAngle())*(circleSize/2 - strokeSize));
+		int y1 = (int)(slider.getY() + cos*(circleSize/2 - strokeSize));
+		int y2 = (int)(slider.getY() + sin*(slider.getLength()) + cos*(circleSize/2 - strokeSize));
+		int y3 = (int)(slider.getY() - cos*(circleSize/2 - strokeSize));
+		int y4 = (int)(slider.getY() + sin*(slider.getLength()) - cos*(circleSize/2 - strokeSize));
 
 		// Draw two parallel lines for the slider body
 		g2d.setColor(sliderLineColor);
@@ -314,35 +368,11 @@ public class GameDraw extends JPanel{
 		g2d.drawLine(x3, y3, x4, y4);
 
 		// And two circles for either end of the slider
-		double angle = slider.getAngle();
-		int endCircleX = slider.getX() + (int)(slider.getLength()*Math.cos(angle));
-		int endCircleY = slider.getY() + (int)(slider.getLength()*Math.sin(angle));
-		
 		drawCircleImage(g2d, slider.getX(), slider.getY());
 		drawCircleImage(g2d, endCircleX, endCircleY);
-
-		// Check if the slider has started yet;
-		// If so, draw a follow circle
-		if(game.getCurrentMapTime() > slider.getTime()){
-			// Increment the follow circle position
-			slider.followCirclePos += (slider.getLength()+0.0)/(slider.getEndTime()-slider.getTime())*dT;
-			
-			int followX = (int)(slider.getX() + Math.cos(slider.getAngle())*slider.followCirclePos);
-			int followY = (int)(slider.getY() + Math.sin(slider.getAngle())*slider.followCirclePos);
-			
-			// Draw the follow circle
-			g2d.drawImage(sliderFollowCircleImage, followX-circleSize/2, followY-circleSize/2, followX+circleSize/2, followY+circleSize/2, 0, 0, sliderFollowCircleImage.getWidth(), sliderFollowCircleImage.getHeight(), this);
-		}
-		// If not, draw an approach circle
-		else{
-			double approachCircleSize = circleSize + ((approachSize-circleSize)*((slider.getTime()-game.getCurrentMapTime()+0.0)/approachRate));
-			g2d.setColor(approachColor);
-			double approachX = slider.getX()-circleSize/2-(approachCircleSize-circleSize)/2;
-			double approachY = slider.getY()-circleSize/2-(approachCircleSize-circleSize)/2;
-			g2d.drawOval((int)approachX, (int)approachY, (int)approachCircleSize, (int)approachCircleSize);
-		}
+		g2d.dispose();
 	}
-	
+
 	/**
 	 * Returns the array of:
 	 * {skipButtonX, skipButtonX2, skipButtonY, skipButtonY2}
@@ -352,95 +382,40 @@ public class GameDraw extends JPanel{
 	}
 
 	/**
-	 * Adds an element to the queue of elements to be repeatedly drawn.
-	 * See also: dequeueElement
-	 * @param element The element to be added.
-	 */
-	public void queueElement(Element element){
-		switch(element.getElementType()){
-			case 1:
-				queueCircle((Circle)element);
-				break;
-			case 2:
-				queueSlider((Slider)element);
-				break;
-		}
-	}
-	/**
-	 * Adds a circle to the queue of circles to be repeatedly drawn.
-	 */
-	private void queueCircle(Circle circle){
-		// Queue the circle
-		circles.add(circle);
-		// Set the initial approach circle size
-		circle.approachCircleSize = approachSize;
-	}
-	/**
-	 * Adds a slider to the queue of sliders to be repeatedly drawn.
-	 */
-	private void queueSlider(Slider slider){
-		sliders.add(slider);
-	}
-
-	/**
-	 * Removes an element from the queue of elements to be repeatedly drawn.
-	 * Also removes any corresponding components, e.g. approach circles.
+	 * Lets go of anything kept to draw an element which has been removed from the game's active elements.
 	 * @param element The element to be removed.
 	 */
-	public void dequeueElement(Element element){
-		switch(element.getElementType()){
-			case 1:
-				dequeueCircle((Circle)element);
-				break;
-			case 2:
-				dequeueSlider((Slider)element);
-				break;
-		}
-	}
-	/**
-	 * Removes a circle from the screen
-	 */
-	private void dequeueCircle(Circle circle){
-		// Iterate through the queue and remove it if it's the same circle
-		Iterator<Circle> iter = circles.iterator();
-		while(iter.hasNext()){
-			Circle c = iter.next();
-			if(c.equals(circle)){
-				iter.remove();
-			}
-		}
+	private void dequeueElement(Element element){
+		if(element.getElementType() == 2) releaseSliderBody(element.getId());
 	}
 
 	/**
-	 * Removes a slider from the screen
+	 * Lets go of the body image of the slider with the given ID straight away, rather
+	 * than waiting for it to be collected; does nothing if it doesn't have one.
 	 */
-	private void dequeueSlider(Slider slider){
-		Iterator<Slider> iter = sliders.iterator();
-		while(iter.hasNext()){
-			Slider s = iter.next();
-			if(s.equals(slider)){
-				iter.remove();
-			}
-		}
+	private void releaseSliderBody(int id){
+		if(sliderBodies[id] == null) return;
+		sliderBodies[id].flush();
+		sliderBodies[id] = null;
 	}
 
 	/**
-	 * Gets the queue of elements that should be
-	 * removed, as they have timed out.
-	 * Also clears this queue.
-	 * @return The queue of elements
+	 * Returns the queue to add elements to once they have been judged, so that
+	 * anything kept to draw them is let go of straight away, rather than once the
+	 * drawing sees they are no longer active. Only the game may add to it.
 	 */
-	public Queue<Element> getDisposalQueue(){
-		// The queue to return
-		Queue<Element> returnQueue = new LinkedList<Element>();
-		// Clone the disposal elements queue, emptying it as well
-		while(!disposalElements.isEmpty()){
-			returnQueue.add(disposalElements.poll());
-		}
-		return returnQueue;
+	public ElementEventQueue getJudgmentQueue(){
+		return judgedElements;
 	}
 	
 	public void removeSkipButton(){
 		skipButtonActive = false;
 	}
+	
+	/**
+	 * Returns the record of times between frames drawn for this game.
+	 */
+	public FrameStats getFrameStats(){
+		return frameStats;
+	}
 }
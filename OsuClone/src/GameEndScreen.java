@@ -10,12 +10,9 @@ import java.awt.event.MouseListener;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
-import javax.imageio.ImageIO;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 
 /**
  * The end screen of a game of MyOsu. One of these should be created
@@ -83,52 +80,47 @@ public class GameEndScreen extends JPanel {
 		};
 		addMouseListener(l);
 		
-		try{
-			backgroundImage = ImageIO.read(new File(Options.SKIN_RANKING_PANEL));
-			
-			menuButtonBackground = ImageIO.read(new File(Options.SKIN_RANKING_BACK_BUTTON));
-			numberImage = new BufferedImage[10];
-			for(int i = 0; i < 10; i++){
-				numberImage[i] = ImageIO.read(new File(Options.SKIN_NUMBER_BASE + i + Options.SKIN_NUMBER_END));
-			}
-			
-			scoreImage = new BufferedImage[4];
-			scoreImage[0] = ImageIO.read(new File(Options.SKIN_300_HIT));
-			scoreImage[1] = ImageIO.read(new File(Options.SKIN_100_HIT));
-			scoreImage[2] = ImageIO.read(new File(Options.SKIN_50_HIT));
-			scoreImage[3] = ImageIO.read(new File(Options.SKIN_0_HIT));
-			
-			accuracyText = ImageIO.read(new File(Options.SKIN_TEXT_ACCURACY));
-			percentImage = ImageIO.read(new File(Options.SKIN_PERCENT));
-			dotImage = ImageIO.read(new File(Options.SKIN_DOT));
-			
-			// The proportion of 300's against the total amount of hits
-			// Used to calculate the rank
-			double proportion300 = (double)scoreCounts[0] / (scoreCounts[3] + scoreCounts[2] + scoreCounts[1] + scoreCounts[0]);
-			
-			// SS only if every hit was a 300
-			if(proportion300 == 1)
-				rankingImage = ImageIO.read(new File(Options.SKIN_SS_RANK));
-			// S if >90% were 300's and none were missed
-			else if(proportion300 > 0.9 && scoreCounts[3] == 0)
-				rankingImage = ImageIO.read(new File(Options.SKIN_S_RANK));
-			// A if >90% were 300's or if >80% were 300's and none were missed
-			else if(proportion300 > 0.9 || (proportion300 > 0.8 && scoreCounts[3] == 0))
-				rankingImage = ImageIO.read(new File(Options.SKIN_A_RANK));
-			// B if >80% were 300's or if >70% were 300's and none were missed
-			else if(proportion300 > 0.8 || (proportion300 > 0.7 && scoreCounts[3] == 0))
-				rankingImage = ImageIO.read(new File(Options.SKIN_B_RANK));
-			// C if >65% were 300's
-			else if(proportion300 > 0.65)
-				rankingImage = ImageIO.read(new File(Options.SKIN_C_RANK));
-			// D otherwise
-			else
-				rankingImage = ImageIO.read(new File(Options.SKIN_D_RANK));
-		}
-		catch(IOException e){
-			System.out.println("Couldn't read from image file while initialising end screen. " + e);
+		backgroundImage = SkinCache.get(Options.SKIN_RANKING_PANEL);
+		
+		menuButtonBackground = SkinCache.get(Options.SKIN_RANKING_BACK_BUTTON);
+		numberImage = new BufferedImage[10];
+		for(int i = 0; i < 10; i++){
+			numberImage[i] = SkinCache.getNumber(i);
 		}
 		
+		scoreImage = new BufferedImage[4];
+		scoreImage[0] = SkinCache.get(Options.SKIN_300_HIT);
+		scoreImage[1] = SkinCache.get(Options.SKIN_100_HIT);
+		scoreImage[2] = SkinCache.get(Options.SKIN_50_HIT);
+		scoreImage[3] = SkinCache.get(Options.SKIN_0_HIT);
+		
+		accuracyText = SkinCache.get(Options.SKIN_TEXT_ACCURACY);
+		percentImage = SkinCache.get(Options.SKIN_PERCENT);
+		dotImage = SkinCache.get(Options.SKIN_DOT);
+		
+		// The proportion of 300's against the total amount of hits
+		// Used to calculate the rank
+		double proportion300 = (double)scoreCounts[0] / (scoreCounts[3] + scoreCounts[2] + scoreCounts[1] + scoreCounts[0]);
+		
+		// SS only if every hit was a 300
+		if(proportion300 == 1)
+			rankingImage = SkinCache.get(Options.SKIN_SS_RANK);
+		// S if >90% were 300's and none were missed
+		else if(proportion300 > 0.9 && scoreCounts[3] == 0)
+			rankingImage = SkinCache.get(Options.SKIN_S_RANK);
+		// A if >90% were 300's or if >80% were 300's and none were missed
+		else if(proportion300 > 0.9 || (proportion300 > 0.8 && scoreCounts[3] == 0))
+			rankingImage = SkinCache.get(Options.SKIN_A_RANK);
+		// B if >80% were 300's or if >70% were 300's and none were missed
+		else if(proportion300 > 0.8 || (proportion300 > 0.7 && scoreCounts[3] == 0))
+			rankingImage = SkinCache.get(Options.SKIN_B_RANK);
+		// C if >65% were 300's
+		else if(proportion300 > 0.65)
+			rankingImage = SkinCache.get(Options.SKIN_C_RANK);
+		// D otherwise
+		else
+			rankingImage = SkinCache.get(Options.SKIN_D_RANK);
+
 		scoreXOffset = getPreferredSize().width*3/8;
 		scoreYOffset = getPreferredSize().height/2 - 75;
 		accXOffset = getPreferredSize().width*3/8;
@@ -0,0 +1,128 @@
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Actively renders a game on its own thread, rather than asking Swing to
+ * repaint and waiting for the event dispatch thread to get around to it.
+ *
+ * Each frame the game is advanced to the current time and drawn straight
+ * into the back buffer of a canvas's BufferStrategy, which is then shown.
+ * Frames are either limited to a maximum rate or drawn as fast as possible.
+ *
+ * @author Robert Campbell
+ */
+public class GameLoop implements Runnable {
+	// The game to advance and draw
+	private final Game game;
+	// What to draw on
+	private final Canvas canvas;
+	// The number of buffers to use; 2 for double buffering, 3 for triple
+	private final int bufferCount;
+	// The shortest time (ns) between frames, or 0 if uncapped
+	private final long minFrameTime;
+	// Where to record how long each frame took
+	private final FrameStats frameStats;
+
+	// The thread drawing frames, while one is running
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Constructor; instantiates GameLoop. Nothing is drawn until start() is called.
+	 * @param game The game to advance and draw.
+	 * @param canvas The canvas to draw on.
+	 * @param bufferCount The number of buffers; 2 for double buffering, 3 for triple.
+	 * @param frameCap The maximum number of frames per second, or 0 to draw as many as possible.
+	 * @param frameStats Where to record how long each frame took.
+	 */
+	public GameLoop(Game game, Canvas canvas, int bufferCount, int frameCap, FrameStats frameStats){
+		this.game = game;
+		this.canvas = canvas;
+		this.bufferCount = bufferCount;
+		this.minFrameTime = frameCap > 0 ? 1000000000L / frameCap : 0;
+		this.frameStats = frameStats;
+	}
+
+	/**
+	 * Starts drawing frames. The canvas must be showing; its buffers are
+	 * recreated every time, as it may have been removed since the last start.
+	 */
+	public void start(){
+		if(running) return;
+		canvas.createBufferStrategy(bufferCount);
+
+		running = true;
+		thread = new Thread(this, "Game loop");
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Stops drawing frames, waiting for the frame being drawn to finish
+	 * unless this is called from the loop itself.
+	 */
+	public void stop(){
+		running = false;
+
+		if(thread != null && thread != Thread.currentThread()){
+			try{ thread.join(); }
+			catch(InterruptedException e){ Thread.currentThread().interrupt(); }
+		}
+		thread = null;
+	}
+
+	/**
+	 * Draws frames until stopped, until the game finishes, or until drawing or
+	 * advancing the game fails, in which case the map is ended.
+	 */
+	public void run(){
+		BufferStrategy strategy = canvas.getBufferStrategy();
+		long nextFrame = System.nanoTime();
+
+		while(running && !game.isFinished()){
+			try{
+				// Contents can be lost (or restored with garbage) at any time; if so, the frame is drawn again
+				do{
+					do{
+						Graphics2D g2d = (Graphics2D)strategy.getDrawGraphics();
+						try{
+							game.doFrame(g2d, canvas.getWidth(), canvas.getHeight());
+						}
+						finally{
+							g2d.dispose();
+						}
+					} while(strategy.contentsRestored());
+					strategy.show();
+				} while(strategy.contentsLost());
+			}
+			// The canvas went away while drawing; the game has been closed
+			catch(IllegalStateException e){
+				break;
+			}
+			// Anything else is a bug; end the map rather than leave it frozen with the audio still playing
+			catch(RuntimeException e){
+				System.err.println("The game loop stopped after an error. " + e);
+				e.printStackTrace();
+				game.abortMap();
+				break;
+			}
+			Toolkit.getDefaultToolkit().sync();
+			frameStats.frame();
+
+			if(minFrameTime > 0){
+				nextFrame += minFrameTime;
+				long wait = nextFrame - System.nanoTime();
+				if(wait > 0) LockSupport.parkNanos(wait);
+				// If we've fallen more than a frame behind, don't try to make up for it with a burst of frames
+				else if(wait < -minFrameTime) nextFrame = System.nanoTime();
+			}
+			else{
+				Thread.yield();
+			}
+		}
+		running = false;
+	}
+}
@@ -1,14 +1,8 @@
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.Scanner;
 
-import javax.imageio.ImageIO;
-
 /**
  * Defines all values (e.g. accuracy) for and
  * elements within a MyOsu map. Created with a
@@ -44,12 +38,8 @@ public class GameMap {
 	private String mapName;
 	// The audio file corresponding to this map
 	private String audio;
-	// A list of all elements in this map
-	private List<Element> elementList;
-	// A queue of elements in this map. This is created only when
-	// resetQueue() is called, and does not affect the list of
-	// elements in the map.
-	private Queue<Element> elements;
+	// All elements in this map, in order of start time
+	private HitObjects hitObjects;
 	
 	// The time (ms) when the map's audio should start
 	private int audioStartTime;
@@ -63,9 +53,6 @@ public class GameMap {
 	// Governs the rate at which health decays and how much the player is penalised for missing
 	private int healthValue;
 	
-	// The background image that should be displayed for this map
-	private BufferedImage backgroundImage;
-	
 	// When the initial break for the map ends
 	private int initialBreakEndTime;
 
@@ -79,11 +66,6 @@ public class GameMap {
 		mapName = name;
 		audio = "maps/" + mapName + "/audio.mp3";
 		audioStartTime = s.nextInt();
-		
-		// Initialise the background
-		try{ backgroundImage = ImageIO.read(new File("maps/" + mapName + "/background.jpg")); }
-		// It's fine if there's no background image
-		catch(IOException e){ backgroundImage = null; }
 
 		odValue = s.nextInt();
 		arValue = s.nextInt();
@@ -92,7 +74,7 @@ public class GameMap {
 		initialBreakEndTime = s.nextInt();
 
 		// Then, initialise the data structures
-		elementList = new ArrayList<Element>();
+		List<Element> elementList = new ArrayList<Element>();
 
 		// And scroll through the scanner, finding all the values
 		while(s.hasNextLine()){
@@ -116,6 +98,26 @@ public class GameMap {
 
 		// Close the scanner!
 		s.close();
+
+		hitObjects = HitObjects.fromElements(elementList);
+	}
+
+	/**
+	 * Constructor; creates a new instance of GameMap from values that
+	 * have already been read, e.g. from a compiled map file.
+	 * @param name The name of this map.
+	 * @param hitObjects All elements in this map.
+	 */
+	GameMap(String name, int audioStartTime, int odValue, int arValue, int csValue, int healthValue, int initialBreakEndTime, HitObjects hitObjects){
+		mapName = name;
+		audio = "maps/" + mapName + "/audio.mp3";
+		this.audioStartTime = audioStartTime;
+		this.odValue = odValue;
+		this.arValue = arValue;
+		this.csValue = csValue;
+		this.healthValue = healthValue;
+		this.initialBreakEndTime = initialBreakEndTime;
+		this.hitObjects = hitObjects;
 	}
 
 	/**
@@ -126,32 +128,37 @@ public class GameMap {
 	}
 
 	/**
-	 * Returns and deletes the next element of the initialised map queue
-	 * @return The next element in the map.
+	 * Returns all elements in this map, in order of start time.
+	 * These are never modified, so a game only needs to keep track
+	 * of which element it is up to.
 	 */
-	public Element poll(){
-		if(elements.isEmpty()) return null;
-		return elements.poll();
+	public HitObjects getHitObjects(){
+		return hitObjects;
 	}
 
 	/**
-	 * Returns but does NOT DELETE next element in the initialised map queue
-	 * @return The next element in the map.
+	 * Returns the overall difficulty level (usually 1-10) of this map, as given in its file
 	 */
-	public Element peek(){
-		if(elements.isEmpty()) return null;
-		return elements.peek();
+	public int getRawOD(){
+		return odValue;
 	}
-	
 	/**
-	 * Recreates the 'map queue'; the queue of all elements in the map,
-	 * from the list of elements
+	 * Returns the approach rate level (usually 1-10) of this map, as given in its file
 	 */
-	public void resetQueue(){
-		elements = new LinkedList<Element>();
-		for(Element e : elementList){
-			elements.offer(e);
-		}
+	public int getRawAR(){
+		return arValue;
+	}
+	/**
+	 * Returns the circle size level (usually 1-10) of this map, as given in its file
+	 */
+	public int getRawCS(){
+		return csValue;
+	}
+	/**
+	 * Returns the health level (usually 1-10) of this map, as given in its file
+	 */
+	public int getRawHealth(){
+		return healthValue;
 	}
 
 	/**
@@ -223,9 +230,19 @@ public class GameMap {
 	/**
 	 * Returns the BufferedImage of the background of this map
 	 * Returns null if this map has no background image
+	 * The image is decoded (on this thread) the first time it is needed,
+	 * and may be dropped from the background cache when it isn't.
 	 */
 	public BufferedImage getBackground(){
-		return backgroundImage;
+		return BackgroundCache.get(getBackgroundFile());
+	}
+	
+	/**
+	 * Returns the file name of the background image of this map
+	 * This file may not exist, as maps don't need a background image
+	 */
+	public String getBackgroundFile(){
+		return "maps/" + mapName + "/background.jpg";
 	}
 	
 	/**
@@ -1,4 +1,3 @@
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 
@@ -6,14 +5,23 @@ import javafx.embed.swing.JFXPanel;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 
 /**
  * The selection menu of the game.
  * @author campberobe1
  */
 public class GameMenu {
+	// How long (ms) a map has to stay selected before its audio starts playing
+	private static final int PREVIEW_DELAY = 250;
+	// How long (ms) the window has to stay the same size before thumbnails are made for the new size
+	private static final int RESIZE_DELAY = 500;
+
 	/** MODS ACTIVE **/
 	private Map<String, Boolean> mods;
 	private boolean modWindowOpen = false;
@@ -23,6 +31,7 @@ public class GameMenu {
 	private JPanel backgroundPanel;
 	private JPanel mainPanel;
 	private JPanel mapPanel;
+	private JPanel mapButtonPanel;
 	private JPanel modPanel;
 	private JLabel titleLabel;
 	
@@ -36,13 +45,48 @@ public class GameMenu {
 	private JButton exitButton;
 
 	private java.util.List<JButton> mapButton = new ArrayList<JButton>();
-	private Map<JButton, GameMap> mapList = new HashMap<JButton, GameMap>();
+	private Map<JButton, MapInfo> mapList = new HashMap<JButton, MapInfo>();
 	private JButton selectedButton = null;
+	// The map of the selected button
+	private MapInfo selectedMap = null;
+	// Starts the selected map's audio once the selection has settled, so that
+	// skipping through maps doesn't start loading the audio of every one
+	private javax.swing.Timer previewTimer = new javax.swing.Timer(PREVIEW_DELAY, new ActionListener(){
+		public void actionPerformed(ActionEvent e){
+			playPreview();
+		}
+	});
+	
+	// The size of the window, which thumbnails are made at; only set on the event dispatch thread, and null until it first is
+	private volatile Dimension thumbnailSize = null;
+	// The background of every map found, so that their thumbnails can be made again if the window changes size
+	private Queue<String> foundBackgrounds = new ConcurrentLinkedQueue<String>();
+	// Makes thumbnails at the new size once the window has stopped changing size
+	private javax.swing.Timer resizeTimer = new javax.swing.Timer(RESIZE_DELAY, new ActionListener(){
+		public void actionPerformed(ActionEvent e){
+			updateThumbnailSize();
+		}
+	});
+	
+	// Maps which have been found by the map scanner but don't have buttons yet
+	private Queue<MapInfo> pendingMaps = new ConcurrentLinkedQueue<MapInfo>();
+	// Whether adding the pending maps has already been scheduled on the event dispatch thread
+	private AtomicBoolean pendingMapsScheduled = new AtomicBoolean(false);
+	
+	// Listens to all buttons in the menu, including map buttons as they are added
+	private ActionListener buttonListener = new ActionListener(){
+		public void actionPerformed(ActionEvent e){
+			doButtons(e);
+		}
+	};
 	
 	private Game currentGame = null;
 
 	// The image to draw as the background
 	private Image bgImage = null;
+	// The file of the background which was asked for most recently; bgImage
+	// stays as the previous background until this one has been decoded
+	private String requestedBackground = null;
 	
 	// The name of the font to use as titles
 	private String titleFontName = "Elephant";
@@ -64,8 +108,13 @@ public class GameMenu {
 		new JFXPanel();	// To initialise the class - this sometimes freezes it for a few seconds,
 		// to which I haven't been able to find a solution.
 		Options.init();
+		// Start decoding the skin now, so that it's ready by the time a game is chosen
+		SkinCache.load();
 		initialiseMenu();
 		initialiseButtons();
+		previewTimer.setRepeats(false);
+		scanMaps();
+		watchSize();
 	}
 
 	/**
@@ -103,9 +152,6 @@ public class GameMenu {
 		// Create two JPanels: one for regular buttons and one for maps
 		initMapPanel();
 		initMainPanel();
-
-		// Select a random map to start
-		selectRandom();
 		
 		// Initialise the mods panel at the bottom (not displayed unless the mods button is clicked)
 		initModPanel();
@@ -202,8 +248,8 @@ public class GameMenu {
 		
 		mapPanel.add(mapTitlePanel, BorderLayout.NORTH);
 		
-		// And fill the map buttons from getMaps
-		JPanel mapButtonPanel = new JPanel();
+		// The map buttons are filled in by scanMaps as the maps are found
+		mapButtonPanel = new JPanel();
 		mapButtonPanel.setOpaque(false);
 		mapButtonPanel.setLayout(new BoxLayout(mapButtonPanel, BoxLayout.Y_AXIS));
 		
@@ -216,15 +262,6 @@ public class GameMenu {
 		// scroll pane defaults to having a border?
 		scrollPane.setBorder(new EmptyBorder(0,0,0,0));
 		
-		Set<String> mapNames = getMaps();
-		for(String name : mapNames){
-			GameMap currentMap = getMap(name);
-			JButton btn = addButton(name, Color.WHITE, Color.BLACK, mapButtonPanel);
-			btn.setAlignmentX(Component.CENTER_ALIGNMENT);
-			mapList.put(btn, currentMap);
-			mapButton.add(btn);
-		}
-		
 		mapPanel.add(scrollPane, BorderLayout.CENTER);
 		
 		menuOuterFrame.add(mapPanel, BorderLayout.CENTER);
@@ -271,10 +308,132 @@ public class GameMenu {
 		menuOuterFrame.add(mainPanel, BorderLayout.SOUTH);
 	}
 
+	/**
+	 * Starts scanning for maps in the background. Buttons are added for maps
+	 * as they are found, and a random map is selected once all have been found.
+	 */
+	private void scanMaps(){
+		// The buttons are made from the map index, so that no maps need to be loaded here
+		MapIndex index = MapIndex.load(new File(Options.MAP_INDEX_FILE));
+		
+		MapScanner scanner = new MapScanner(index, new Consumer<MapInfo>(){
+			public void accept(MapInfo info){
+				// Have the menu background ready for when the map is selected; if the
+				// window's size isn't known yet, it's made once it is
+				foundBackgrounds.add(info.getBackgroundFile());
+				Dimension size = thumbnailSize;
+				if(size != null) Thumbnails.generate(info.getBackgroundFile(), size.width, size.height);
+				
+				pendingMaps.add(info);
+				// Add the buttons in batches, rather than laying out the panel once for every map
+				if(pendingMapsScheduled.compareAndSet(false, true)){
+					SwingUtilities.invokeLater(new Runnable(){
+						public void run(){
+							addPendingMaps();
+						}
+					});
+				}
+			}
+		});
+		
+		scanner.start(new Runnable(){
+			public void run(){
+				SwingUtilities.invokeLater(new Runnable(){
+					public void run(){
+						// Put every button in order now that all have been found
+						addPendingMaps();
+						sortMapButtons();
+						
+						// Select a random map to start, unless the player already picked one
+						if(selectedButton == null) selectRandom();
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Keeps track of the size of the window, which thumbnails are made at, as
+	 * it can only be read on the event dispatch thread; it may also not be the
+	 * final size yet, if the window is still being maximised.
+	 */
+	private void watchSize(){
+		resizeTimer.setRepeats(false);
+		menuOuterFrame.addComponentListener(new ComponentAdapter(){
+			public void componentResized(ComponentEvent e){
+				resizeTimer.restart();
+			}
+		});
+		SwingUtilities.invokeLater(new Runnable(){
+			public void run(){
+				updateThumbnailSize();
+			}
+		});
+	}
+	
+	/**
+	 * Reads the size of the window and, if it has changed, makes the
+	 * thumbnails of every map found so far at the new size.
+	 */
+	private void updateThumbnailSize(){
+		Dimension size = menuOuterFrame.getSize();
+		if(size.width <= 0 || size.height <= 0 || size.equals(thumbnailSize)) return;
+		
+		thumbnailSize = size;
+		for(String background : foundBackgrounds){
+			Thumbnails.generate(background, size.width, size.height);
+		}
+	}
+	
+	/**
+	 * Adds a button for every map which has been found but doesn't have one yet.
+	 * The buttons are added to the end of the list as they are found, and only
+	 * put in order once the scan is done, so that each one is added in constant time.
+	 */
+	private void addPendingMaps(){
+		pendingMapsScheduled.set(false);
+		
+		MapInfo info;
+		while((info = pendingMaps.poll()) != null){
+			JButton btn = new JButton(info.getName());
+			btn.setForeground(Color.WHITE);
+			btn.setBackground(Color.BLACK);
+			btn.setAlignmentX(Component.CENTER_ALIGNMENT);
+			btn.addActionListener(buttonListener);
+			mapButtonPanel.add(btn);
+			
+			mapList.put(btn, info);
+			mapButton.add(btn);
+		}
+		
+		mapButtonPanel.revalidate();
+	}
+	
+	/**
+	 * Puts the map buttons in alphabetical order, rebuilding the panel once.
+	 */
+	private void sortMapButtons(){
+		Collections.sort(mapButton, new Comparator<JButton>(){
+			public int compare(JButton a, JButton b){
+				return a.getText().compareToIgnoreCase(b.getText());
+			}
+		});
+		
+		mapButtonPanel.removeAll();
+		for(JButton btn : mapButton){
+			mapButtonPanel.add(btn);
+		}
+		mapButtonPanel.revalidate();
+		mapButtonPanel.repaint();
+	}
+
 	/**
 	 * Selects a random map.
 	 */
 	private void selectRandom(){
+		// There may not be any maps at all
+		if(mapList.isEmpty()) return;
+		
 		java.util.List<JButton> buttonsList = new ArrayList<JButton>(mapList.keySet());
 		int randomIndex = (int)(Math.random()*buttonsList.size());
 		
@@ -287,61 +446,74 @@ public class GameMenu {
 	private class MenuBackground extends JPanel {
 		public void paintComponent(Graphics g){
 			if(bgImage != null){
-				// Check if the frame width or the image width is greater
-				if(menuOuterFrame.getWidth() > bgImage.getWidth(this)){
-					// If the frame is bigger, we want to stretch the image such that its width fills the whole width of the frame
-					double scaleRatio = menuOuterFrame.getWidth()/bgImage.getWidth(this);
-					// height of the blank space at the top and bottom of the frame
-					double blankSpace = (menuOuterFrame.getHeight() - bgImage.getHeight(this)*scaleRatio)/2;
-					if(blankSpace < 0) blankSpace = 0;
-					
-					g.drawImage(bgImage, 0, (int)blankSpace, menuOuterFrame.getWidth(), menuOuterFrame.getHeight()-(int)blankSpace, 0, 0, bgImage.getWidth(this), bgImage.getHeight(this), this);
-				}
-					
-					
-				// If the image is bigger, only use a part of the image
-				else{
-					// We want to get the middle of the background in the middle of the area
-					// So, figure out the middle of the x and y of the picture's area
-					int midPictureX = bgImage.getWidth(this)/2;
-					int midPictureY = bgImage.getHeight(this)/2;
-					// And the middle positions of the frame
-					int midFrameX = menuOuterFrame.getWidth()/2;
-					int midFrameY = menuOuterFrame.getHeight()/2;
-				
-					g.drawImage(bgImage,0,0,menuOuterFrame.getWidth(),menuOuterFrame.getHeight(),midPictureX-midFrameX,midPictureY-midFrameY,midPictureX+midFrameX,midPictureY+midFrameY,this);
-				}
+				// Thumbnails are already the size of the frame, so can just be copied across
+				if(bgImage.getWidth(this) == menuOuterFrame.getWidth() && bgImage.getHeight(this) == menuOuterFrame.getHeight())
+					g.drawImage(bgImage, 0, 0, this);
+				else
+					Thumbnails.drawCovering(g, bgImage, menuOuterFrame.getWidth(), menuOuterFrame.getHeight(), this);
 			}
 		}
 	}
 	
 	/**
 	 * Sets the background of the menu frame to be the background
-	 * of the given GameMap.
+	 * of the given map.
 	 * Sets the background to the default background as defined in
-	 * Options, if the given GameMap's background is null.
+	 * Options, if the given map's background is null.
+	 * A thumbnail of the background is made and decoded in the background;
+	 * until it's ready, the previous background is still shown.
 	 */
-	private void setBackground(GameMap map){
+	private void setBackground(MapInfo map){
 		if(map == null) return;
-		if(map.getBackground() != null)
-			bgImage = map.getBackground();
-		// Set to the default background if that map doesn't have a background
-		else{
-			try{
-				bgImage = ImageIO.read(new File(Options.DEFAULT_BG));
-			}
-			catch(IOException e){
-				System.out.println("Could not read from default background image file; " + e);
+		setBackground(map.getBackgroundFile());
+	}
+	
+	/**
+	 * Sets the background of the menu frame to be the image in the given file,
+	 * or the default background if that can't be read.
+	 */
+	private void setBackground(final String fname){
+		requestedBackground = fname;
+		Thumbnails.request(fname, menuOuterFrame.getWidth(), menuOuterFrame.getHeight(), new Consumer<BufferedImage>(){
+			public void accept(BufferedImage image){
+				// Ignore it if another background has been asked for since
+				if(!fname.equals(requestedBackground)) return;
+				
+				if(image != null){
+					bgImage = image;
+					backgroundPanel.repaint();
+				}
+				// Set to the default background if that map doesn't have a background
+				else if(!fname.equals(Options.DEFAULT_BG))
+					setBackground(Options.DEFAULT_BG);
+				else
+					System.out.println("Could not read from default background image file.");
 			}
+		});
+	}
+	
+	/**
+	 * Plays the audio of the selected map, and loads the audio of the maps
+	 * either side of it in the list, so that they're ready to play if the
+	 * selection moves on to them.
+	 */
+	private void playPreview(){
+		playAudio(selectedMap);
+		
+		int position = mapButton.indexOf(selectedButton);
+		for(int neighbour : new int[]{ position-1, position+1 }){
+			if(position == -1 || neighbour < 0 || neighbour >= mapButton.size()) continue;
+			
+			MapInfo info = mapList.get(mapButton.get(neighbour));
+			AudioPlayer.prefetchLongAudio(info.getAudio(), info.getAudioStartTime());
 		}
-		backgroundPanel.repaint();
 	}
 	
 	/**
 	 * Plays the audio clip corresponding to a given map.
 	 * Starts at the map's start position
 	 */
-	private void playAudio(GameMap map){
+	private void playAudio(MapInfo map){
 		if(map == null) return;
 		if(map.getAudio() == null) return;
 		
@@ -352,21 +524,10 @@ public class GameMenu {
 	 * Initialises the button listeners for the menu
 	 */
 	private void initialiseButtons(){
-		// Add an action listener to each of the buttons
-		ActionListener l = new ActionListener(){
-			public void actionPerformed(ActionEvent e){
-				doButtons(e);
-			}
-		};
-
-		optionButton.addActionListener(l);
-		modButton.addActionListener(l);
-		exitButton.addActionListener(l);
-
-		for(JButton btn : mapButton){
-		  btn.addActionListener(l);
-		}
-
+		// Add an action listener to each of the buttons; map buttons get it when they are added
+		optionButton.addActionListener(buttonListener);
+		modButton.addActionListener(buttonListener);
+		exitButton.addActionListener(buttonListener);
 	}
 
 	/**
@@ -389,7 +550,7 @@ public class GameMenu {
 		else if(mapButton.contains(source)){
 			// If the button was already selected, we want to start the game with that map
 			if(selectedButton == source)
-				buildGame(mapList.get(source));
+				buildGame(selectedMap);
 			// Otherwise, we want to select that button
 			else
 				selectButton((JButton)source);
@@ -407,8 +568,10 @@ public class GameMenu {
 		}
 		
 		selectedButton = button;
-		setBackground(mapList.get(button));
-		playAudio(mapList.get(button));
+		// The map itself isn't loaded until it's played
+		selectedMap = mapList.get(button);
+		setBackground(selectedMap);
+		previewTimer.restart();
 		
 		// Change the colours of the new button
 		selectedButton.setBackground(Color.WHITE);
@@ -418,9 +581,12 @@ public class GameMenu {
 	/**
 	 * Closes any current game instance and
 	 * creates a new one from the specified
-	 * GameMap
+	 * map
 	 */
-	private void buildGame(GameMap map){
+	private void buildGame(MapInfo map){
+		if(map == null) return;
+		// The game plays the map's audio itself
+		previewTimer.stop();
 		// Evaluate mods active
 		Map<String, Boolean> modsActive = new HashMap<String, Boolean>();
 		modsActive.put("hidden", hiddenCheckbox.isSelected());
@@ -438,62 +604,6 @@ public class GameMenu {
 		optionFrame.init();
 	}
 
-	/**
-	 * Finds the list of available maps from the folder specified in options.
-	 * Maps' files should be contained within a folder; e.g. a path for a map could be "/maps/Scarlet Rose (Hard)", with
-	 * that folder containing "background.jpg", "audio.mp3" and "map".
-	 * @return A set of map names found in the folder. Gives an empty set if it couldn't read from the folder.
-	 */
-	private Set<String> getMaps(){
-		// A set of map filesnames.
-		Set<String> mapNames = new HashSet<String>();
-		
-		File dir = new File(Options.MAP_FOLDER);
-		File[] fileList = dir.listFiles();
-		for(File f : fileList)
-			mapNames.add(f.getName());
-		
-		return mapNames;
-		
-		/* Old code to get the names from a file
-		// A list of map filenames
-		ArrayList<String> mapNames = new ArrayList<String>();
-		// Attempt to create a scanner to find map names and add them to the list of map names
-		try{
-			// Create a new scanner on the given file
-			Scanner s = new Scanner(new File(filename));
-			// Add to mapNames each name in the file
-			while(s.hasNextLine()){
-				mapNames.add(s.nextLine());
-			}
-			s.close();
-		}
-		// Throw an exception if it can't read from the file
-		catch(IOException e){
-			System.err.println("Could not read from map names file ("+filename+"). Details: " + e);
-		}
-		return mapNames;
-		*/
-	}
-
-	/**
-	 * Constructs a new map from the file with the given filename.
-	 * @return The newly constructed map.
-	 */
-	private GameMap getMap(String filename){
-		// Scan through the file and attempt to make a map from it, then return it.
-		// Return null after an IOException
-		try{
-			Scanner s = new Scanner(new File("maps/" + filename + "/map"));
-			GameMap newMap = new GameMap(filename, s);
-			return newMap;
-		}
-		catch(IOException e){
-			System.err.println("Could not read from map file '"+filename+"'. Is this file not present? Details: " + e);
-		}
-		return null;
-	}
-
 	/**
 	 * Toggles whether or not the mod area is open.
 	 */
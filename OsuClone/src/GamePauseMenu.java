@@ -7,12 +7,9 @@ import java.awt.event.ActionListener;
 
 import javax.swing.JButton;
 import javax.swing.JPanel;
-import javax.imageio.ImageIO;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 
 /**
  * A pause menu for the game of MyOsu; is merely a panel that should
@@ -59,8 +56,7 @@ public class GamePauseMenu extends JPanel {
 		add(exitButton);
 		
 		// Initialise the background
-		try{ backgroundImage = ImageIO.read(new File(Options.SKIN_PAUSE_MENU_BACKGROUND)); }
-		catch(IOException e){ System.out.println(e); }
+		backgroundImage = SkinCache.get(Options.SKIN_PAUSE_MENU_BACKGROUND);
 		
 		setVisible(true);
 	}
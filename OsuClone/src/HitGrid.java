@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the screen, with cells the size of a circle, of the
+ * circles and sliders on screen, so that finding what a click landed on only
+ * means looking at the few cells around the click, however many elements
+ * there are on screen.
+ *
+ * Circles are put in the cell holding their center, and sliders in every cell
+ * which the path of their follow circle crosses the bounding box of. As a
+ * click can only hit an element whose center is within half a circle size of
+ * it, only the (at most four) cells within that distance need to be checked.
+ * Elements are referred to by ID, and everything is read from the map's
+ * HitObjects, so adding, removing and checking never allocate (besides a cell
+ * growing the first few times it gets crowded).
+ *
+ * @author Robert Campbell
+ */
+public class HitGrid {
+	// The number of elements a cell starts with room for
+	private static final int INITIAL_CELL_CAPACITY = 4;
+
+	// The elements of the map
+	private final HitObjects hitObjects;
+	// The radius (px) within which a click hits an element, and the size of each cell (twice the radius)
+	private final int radius;
+	private final int cellSize;
+	// The number of cells across and down; anything outside is put in the nearest cell at the edge
+	private final int columns;
+	private final int rows;
+
+	// The IDs of the elements in each cell, in no particular order, and how many there are
+	private final int[][] cellIds;
+	private final int[] cellCount;
+
+	// The direction of each slider, worked out once
+	private final double[] cos;
+	private final double[] sin;
+
+	/**
+	 * Constructor; instantiates an empty HitGrid big enough for every element of a map.
+	 * @param hitObjects The elements of the map.
+	 * @param circleSize The size of all circles; clicks within half of this of an element hit it.
+	 */
+	public HitGrid(HitObjects hitObjects, int circleSize){
+		this.hitObjects = hitObjects;
+		this.radius = circleSize/2;
+		this.cellSize = Math.max(radius*2, 1);
+
+		int maxX = 0;
+		int maxY = 0;
+		cos = new double[hitObjects.size()];
+		sin = new double[hitObjects.size()];
+		for(int i = 0; i < hitObjects.size(); i++){
+			if(hitObjects.getType(i) == HitObjects.BREAK) continue;
+			maxX = Math.max(maxX, hitObjects.getX(i));
+			maxY = Math.max(maxY, hitObjects.getY(i));
+			if(hitObjects.getType(i) == HitObjects.SLIDER){
+				// The same as Slider.getAngle()
+				double angle = hitObjects.getAngle(i)/180.0*Math.PI;
+				cos[i] = Math.cos(angle);
+				sin[i] = Math.sin(angle);
+				maxX = Math.max(maxX, getEndX(i));
+				maxY = Math.max(maxY, getEndY(i));
+			}
+		}
+		columns = maxX/cellSize + 1;
+		rows = maxY/cellSize + 1;
+
+		cellIds = new int[columns*rows][INITIAL_CELL_CAPACITY];
+		cellCount = new int[columns*rows];
+	}
+
+	/**
+	 * Adds the circle or slider with the given ID to the grid; it should be on screen.
+	 */
+	public void add(int id){
+		int type = hitObjects.getType(id);
+		if(type == HitObjects.CIRCLE){
+			addToCell(getCell(column(hitObjects.getX(id)), row(hitObjects.getY(id))), id);
+		}
+		else if(type == HitObjects.SLIDER){
+			for(int row = firstRow(id); row <= lastRow(id); row++){
+				for(int column = firstColumn(id); column <= lastColumn(id); column++){
+					addToCell(getCell(column, row), id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the circle or slider with the given ID from the grid.
+	 */
+	public void remove(int id){
+		int type = hitObjects.getType(id);
+		if(type == HitObjects.CIRCLE){
+			removeFromCell(getCell(column(hitObjects.getX(id)), row(hitObjects.getY(id))), id);
+		}
+		else if(type == HitObjects.SLIDER){
+			for(int row = firstRow(id); row <= lastRow(id); row++){
+				for(int column = firstColumn(id); column <= lastColumn(id); column++){
+					removeFromCell(getCell(column, row), id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the element in the grid that a click lands on; the circle itself for
+	 * circles, and the follow circle for sliders. If several are hit, the one which
+	 * appeared first (that with the lowest ID) is the one which is hit.
+	 * @param x The x position of the click.
+	 * @param y The y position of the click.
+	 * @param mapTime The time in the map of the click, which decides where follow circles are.
+	 * @return The ID of the element hit, or -1 if none are.
+	 */
+	public int findHit(int x, int y, double mapTime){
+		int hit = -1;
+		int lastColumn = column(x + radius);
+		int lastRow = row(y + radius);
+		for(int row = row(y - radius); row <= lastRow; row++){
+			for(int column = column(x - radius); column <= lastColumn; column++){
+				int cell = getCell(column, row);
+				int[] ids = cellIds[cell];
+				for(int k = 0; k < cellCount[cell]; k++){
+					int id = ids[k];
+					if((hit == -1 || id < hit) && isHit(id, x, y, mapTime)) hit = id;
+				}
+			}
+		}
+		return hit;
+	}
+
+	/**
+	 * Returns whether a click at the given position and time lands on the given element.
+	 */
+	private boolean isHit(int id, int x, int y, double mapTime){
+		int centerX = hitObjects.getX(id);
+		int centerY = hitObjects.getY(id);
+		if(hitObjects.getType(id) == HitObjects.SLIDER){
+			// Where the follow circle is; the same as Slider.getFollowCirclePos()
+			int time = hitObjects.getTime(id);
+			int endTime = hitObjects.getEndTime(id);
+			double proportion = endTime <= time ? (mapTime < time ? 0 : 1) : (mapTime - time) / (endTime - time);
+			if(proportion < 0) proportion = 0;
+			if(proportion > 1) proportion = 1;
+			double followCirclePos = proportion * hitObjects.getLength(id);
+			centerX = (int)(centerX + followCirclePos * cos[id]);
+			centerY = (int)(centerY + followCirclePos * sin[id]);
+		}
+		int dx = x - centerX;
+		int dy = y - centerY;
+		return dx*dx + dy*dy < radius*radius;
+	}
+
+	/**
+	 * Adds an ID to a cell, making room if need be.
+	 */
+	private void addToCell(int cell, int id){
+		if(cellCount[cell] == cellIds[cell].length){
+			cellIds[cell] = Arrays.copyOf(cellIds[cell], cellIds[cell].length*2);
+		}
+		cellIds[cell][cellCount[cell]++] = id;
+	}
+
+	/**
+	 * Removes an ID from a cell, by moving the cell's last ID into its place.
+	 */
+	private void removeFromCell(int cell, int id){
+		int[] ids = cellIds[cell];
+		for(int k = 0; k < cellCount[cell]; k++){
+			if(ids[k] == id){
+				ids[k] = ids[--cellCount[cell]];
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the x position of the end of a slider.
+	 */
+	private int getEndX(int id){
+		return hitObjects.getX(id) + (int)(hitObjects.getLength(id)*cos[id]);
+	}
+
+	/**
+	 * Returns the y position of the end of a slider.
+	 */
+	private int getEndY(int id){
+		return hitObjects.getY(id) + (int)(hitObjects.getLength(id)*sin[id]);
+	}
+
+	// The range of cells covering the bounding box of a slider's path, a pixel bigger each way as positions along it are rounded
+	private int firstColumn(int id){ return column(Math.min(hitObjects.getX(id), getEndX(id)) - 1); }
+	private int lastColumn(int id){ return column(Math.max(hitObjects.getX(id), getEndX(id)) + 1); }
+	private int firstRow(int id){ return row(Math.min(hitObjects.getY(id), getEndY(id)) - 1); }
+	private int lastRow(int id){ return row(Math.max(hitObjects.getY(id), getEndY(id)) + 1); }
+
+	/**
+	 * Returns the column holding an x position, or the nearest one if it's off the grid.
+	 */
+	private int column(int x){
+		return Math.max(0, Math.min(columns-1, Math.floorDiv(x, cellSize)));
+	}
+
+	/**
+	 * Returns the row holding a y position, or the nearest one if it's off the grid.
+	 */
+	private int row(int y){
+		return Math.max(0, Math.min(rows-1, Math.floorDiv(y, cellSize)));
+	}
+
+	/**
+	 * Returns the index of the cell at the given column and row.
+	 */
+	private int getCell(int column, int row){
+		return row*columns + column;
+	}
+}
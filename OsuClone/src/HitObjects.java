@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * All elements of a map, stored as parallel primitive arrays rather than as
+ * element objects, in order of their start times.
+ *
+ * Element i is described by type[i], time[i], endTime[i], x[i], y[i],
+ * length[i] and angle[i]. Values which don't apply to an element's type
+ * are 0, except for the end time, which is the start time for circles.
+ * The arrays are never modified once created, so one HitObjects can be
+ * used by any number of games at once, and playing through it is just a
+ * matter of moving an index along. The element objects (with ID i for
+ * element i) are made once up front and never change either.
+ *
+ * As breaks don't appear ahead of time like circles and sliders do, they
+ * are also indexed separately; getHit(k) gives the index of the k'th circle
+ * or slider and getBreak(k) that of the k'th break, both in order of time.
+ *
+ * @author Robert Campbell
+ */
+public class HitObjects {
+	// The element types, the same as those given by Element.getElementType()
+	public static final int CIRCLE = 1;
+	public static final int SLIDER = 2;
+	public static final int BREAK = 3;
+
+	// The number of elements
+	private final int count;
+
+	private final int[] type;
+	private final int[] time;
+	private final int[] endTime;
+	private final int[] x;
+	private final int[] y;
+	// The length (pixels) and angle (degrees) of sliders
+	private final int[] length;
+	private final int[] angle;
+
+	// The indices of all circles and sliders, and of all breaks, in order of time
+	private final int[] hits;
+	private final int[] breaks;
+
+	// Each element as an object, made once and shared
+	private final Element[] elements;
+
+	/**
+	 * Constructor; creates a store from already filled in arrays, which must all
+	 * be of the same length and must not be modified afterwards.
+	 */
+	private HitObjects(int[] type, int[] time, int[] endTime, int[] x, int[] y, int[] length, int[] angle){
+		this.count = type.length;
+		this.type = type;
+		this.time = time;
+		this.endTime = endTime;
+		this.x = x;
+		this.y = y;
+		this.length = length;
+		this.angle = angle;
+
+		// Build the index of each kind of element
+		int breakCount = 0;
+		for(int i = 0; i < count; i++){
+			if(type[i] == BREAK) breakCount++;
+		}
+		hits = new int[count - breakCount];
+		breaks = new int[breakCount];
+		int hitPos = 0;
+		int breakPos = 0;
+		for(int i = 0; i < count; i++){
+			if(type[i] == BREAK) breaks[breakPos++] = i;
+			else hits[hitPos++] = i;
+		}
+
+		elements = new Element[count];
+		for(int i = 0; i < count; i++){
+			elements[i] = createElement(i);
+		}
+	}
+
+	/**
+	 * Creates the store of a list of elements, sorting them by start time.
+	 * Elements with the same start time stay in the order they were given in.
+	 */
+	public static HitObjects fromElements(List<Element> elements){
+		int count = elements.size();
+		int[] type = new int[count];
+		int[] time = new int[count];
+		int[] endTime = new int[count];
+		int[] x = new int[count];
+		int[] y = new int[count];
+		int[] length = new int[count];
+		int[] angle = new int[count];
+
+		// Sort the times with the original positions in the low bits, so that ties keep their order
+		long[] keys = new long[count];
+		for(int i = 0; i < count; i++){
+			keys[i] = ((long)elements.get(i).getTime() << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		for(int i = 0; i < count; i++){
+			Element e = elements.get((int)keys[i]);
+			type[i] = e.getElementType();
+			time[i] = e.getTime();
+			endTime[i] = e.getTime();
+
+			if(e.getElementType() == CIRCLE){
+				x[i] = e.getX();
+				y[i] = e.getY();
+			}
+			else if(e.getElementType() == SLIDER){
+				Slider slider = (Slider)e;
+				endTime[i] = slider.getEndTime();
+				x[i] = slider.getX();
+				y[i] = slider.getY();
+				length[i] = slider.getLength();
+				angle[i] = slider.getAngleDegrees();
+			}
+			else if(e.getElementType() == BREAK){
+				endTime[i] = ((Break)e).getEndTime();
+			}
+		}
+		return new HitObjects(type, time, endTime, x, y, length, angle);
+	}
+
+	/**
+	 * Reads a store written by write(IntBuffer); the element count followed by each array in turn.
+	 * @throws IOException If the count doesn't fit in what's left of the buffer, as in a corrupt file.
+	 */
+	public static HitObjects read(IntBuffer buffer) throws IOException {
+		int count = buffer.get();
+		// Checked before allocating, so a corrupt count can't run out of memory
+		if(count < 0 || (long)count*7 > buffer.remaining()){
+			throw new IOException("Element count " + count + " doesn't fit in the " + buffer.remaining() + " values left");
+		}
+		int[][] arrays = new int[7][count];
+		for(int[] array : arrays){
+			buffer.get(array);
+		}
+		return new HitObjects(arrays[0], arrays[1], arrays[2], arrays[3], arrays[4], arrays[5], arrays[6]);
+	}
+
+	/**
+	 * Writes this store so that it can be read back by read(IntBuffer).
+	 */
+	public void write(IntBuffer buffer){
+		buffer.put(count);
+		buffer.put(type);
+		buffer.put(time);
+		buffer.put(endTime);
+		buffer.put(x);
+		buffer.put(y);
+		buffer.put(length);
+		buffer.put(angle);
+	}
+
+	/**
+	 * Returns the number of integers which write(IntBuffer) will write.
+	 */
+	public int getWrittenSize(){
+		return 1 + 7*count;
+	}
+
+	/**
+	 * Returns the element object for element i, whose ID is i; the same one every time.
+	 */
+	public Element getElement(int i){
+		return elements[i];
+	}
+
+	/**
+	 * Creates the element object for element i.
+	 */
+	private Element createElement(int i){
+		switch(type[i]){
+			case CIRCLE:
+				return new Circle(time[i], x[i], y[i], i);
+			case SLIDER:
+				return new Slider(time[i], endTime[i], length[i], angle[i], x[i], y[i], i);
+			default:
+				return new Break(time[i], endTime[i], i);
+		}
+	}
+
+	/**
+	 * Returns the number of elements.
+	 */
+	public int size(){
+		return count;
+	}
+
+	/**
+	 * Returns the number of circles and sliders.
+	 */
+	public int getHitCount(){
+		return hits.length;
+	}
+
+	/**
+	 * Returns the index of the k'th circle or slider in order of time.
+	 */
+	public int getHit(int k){
+		return hits[k];
+	}
+
+	/**
+	 * Returns the number of breaks.
+	 */
+	public int getBreakCount(){
+		return breaks.length;
+	}
+
+	/**
+	 * Returns the index of the k'th break in order of time.
+	 */
+	public int getBreak(int k){
+		return breaks[k];
+	}
+
+	/**
+	 * Returns the type of element i; CIRCLE, SLIDER or BREAK.
+	 */
+	public int getType(int i){
+		return type[i];
+	}
+
+	/**
+	 * Returns the start time of element i.
+	 */
+	public int getTime(int i){
+		return time[i];
+	}
+
+	/**
+	 * Returns the end time of element i; the same as its start time for circles.
+	 */
+	public int getEndTime(int i){
+		return endTime[i];
+	}
+
+	/**
+	 * Returns the x position of element i.
+	 */
+	public int getX(int i){
+		return x[i];
+	}
+
+	/**
+	 * Returns the y position of element i.
+	 */
+	public int getY(int i){
+		return y[i];
+	}
+
+	/**
+	 * Returns the length of element i, if it's a slider.
+	 */
+	public int getLength(int i){
+		return length[i];
+	}
+
+	/**
+	 * Returns the angle, in degrees, of element i, if it's a slider.
+	 */
+	public int getAngle(int i){
+		return angle[i];
+	}
+
+	/**
+	 * Returns the time at which the last of the elements ends.
+	 */
+	public int getLastEndTime(){
+		int last = 0;
+		for(int i = 0; i < count; i++){
+			last = Math.max(last, endTime[i]);
+		}
+		return last;
+	}
+}
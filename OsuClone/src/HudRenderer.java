@@ -0,0 +1,221 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the numbers shown during a game (score, accuracy and combo) from the
+ * skin's number images, without creating any objects while the game runs.
+ *
+ * The digits, dot and percent sign are drawn once into a single atlas. Each
+ * number is written into a char buffer of its own and drawn from the atlas
+ * into an image of its own, which is only redrawn when the number changes;
+ * every other frame it is a single copy.
+ *
+ * @author Robert Campbell
+ */
+public class HudRenderer {
+	// The space (px) between neighbouring glyphs, before scaling
+	private static final int GLYPH_GAP = 5;
+	// The most characters any number can have; enough for any long, a dot and a percent sign
+	private static final int MAX_LENGTH = 22;
+
+	// Where each glyph is in the atlas; 0-9 are digits, then the dot and percent sign
+	private static final int DOT = 10;
+	private static final int PERCENT = 11;
+	private final int[] glyphX = new int[12];
+	private final int[] glyphWidth = new int[12];
+	private final int[] glyphHeight = new int[12];
+	// The height of the tallest glyph, and so of the atlas
+	private int atlasHeight = 0;
+	// Every glyph, side by side
+	private final BufferedImage atlas;
+
+	// The numbers drawn
+	private final NumberImage scoreImage;
+	private final NumberImage accuracyImage;
+	private final NumberImage comboImage;
+
+	/**
+	 * Constructor; instantiates HudRenderer, building the glyph atlas from the skin cache.
+	 */
+	public HudRenderer(){
+		BufferedImage[] glyphs = new BufferedImage[glyphX.length];
+		for(int i = 0; i < 10; i++){
+			glyphs[i] = SkinCache.getNumber(i);
+		}
+		glyphs[DOT] = SkinCache.get(Options.SKIN_DOT);
+		glyphs[PERCENT] = SkinCache.get(Options.SKIN_PERCENT);
+
+		int atlasWidth = 0;
+		for(int i = 0; i < glyphs.length; i++){
+			glyphX[i] = atlasWidth;
+			if(glyphs[i] == null) continue;
+			glyphWidth[i] = glyphs[i].getWidth();
+			glyphHeight[i] = glyphs[i].getHeight();
+			atlasHeight = Math.max(atlasHeight, glyphHeight[i]);
+			atlasWidth += glyphWidth[i];
+		}
+
+		atlas = SkinCache.createImage(Math.max(atlasWidth, 1), Math.max(atlasHeight, 1));
+		Graphics2D g2d = atlas.createGraphics();
+		for(int i = 0; i < glyphs.length; i++){
+			g2d.drawImage(glyphs[i], glyphX[i], 0, null);
+		}
+		g2d.dispose();
+
+		scoreImage = new NumberImage(1, true);
+		// The accuracy is drawn at half size, as it always has been
+		accuracyImage = new NumberImage(0.5, true);
+		comboImage = new NumberImage(1, false);
+	}
+
+	/**
+	 * Draws the score, with its top right corner at the given position.
+	 */
+	public void drawScore(Graphics2D g2d, int score, int x, int y){
+		scoreImage.update(score, 0, false);
+		scoreImage.draw(g2d, x, y);
+	}
+
+	/**
+	 * Draws the accuracy as a percentage to two decimal places, with its top right corner at the given position.
+	 */
+	public void drawAccuracy(Graphics2D g2d, double accuracy, int x, int y){
+		accuracyImage.update(Math.round(accuracy*100), 2, true);
+		accuracyImage.draw(g2d, x, y);
+	}
+
+	/**
+	 * Draws the combo, with its bottom left corner at the given position.
+	 */
+	public void drawCombo(Graphics2D g2d, int combo, int x, int y){
+		comboImage.update(combo, 0, false);
+		comboImage.draw(g2d, x, y - comboImage.image.getHeight());
+	}
+
+	/**
+	 * A number drawn from the atlas into an image, which is kept until the number changes.
+	 */
+	private class NumberImage {
+		// How much bigger (or smaller) than the skin's images the glyphs are drawn
+		private final double scale;
+		// Whether the number is drawn against the right of the image, rather than the left
+		private final boolean alignRight;
+
+		// The number's characters, as last formatted; they fill the end of the buffer, from start
+		private final char[] text = new char[MAX_LENGTH];
+		private int start = MAX_LENGTH;
+		// The number currently drawn in the image, as passed to update
+		private long value;
+		private int decimals;
+		private boolean percent;
+		private boolean drawn = false;
+
+		// The drawn number, and how much of the image's width it takes up
+		private final BufferedImage image;
+		private int drawnWidth = 0;
+
+		/**
+		 * Constructor; instantiates NumberImage, with an image big enough for any number.
+		 */
+		private NumberImage(double scale, boolean alignRight){
+			this.scale = scale;
+			this.alignRight = alignRight;
+
+			int widest = 0;
+			for(int i = 0; i < glyphWidth.length; i++){
+				widest = Math.max(widest, glyphWidth[i]);
+			}
+			int width = (int)(widest*scale) + GLYPH_GAP;
+			image = SkinCache.createImage(Math.max(width*MAX_LENGTH, 1), Math.max((int)(atlasHeight*scale), 1));
+		}
+
+		/**
+		 * Redraws the image if the number is different from the one last drawn.
+		 * @param value The number, multiplied by 10^decimals.
+		 * @param decimals The number of digits after the decimal point.
+		 * @param percent Whether to put a percent sign after the number.
+		 */
+		private void update(long value, int decimals, boolean percent){
+			if(drawn && value == this.value && decimals == this.decimals && percent == this.percent) return;
+			this.value = value;
+			this.decimals = decimals;
+			this.percent = percent;
+			drawn = true;
+
+			format(Math.max(value, 0), decimals, percent);
+			redraw();
+		}
+
+		/**
+		 * Writes the number into the end of the char buffer, backwards.
+		 */
+		private void format(long value, int decimals, boolean percent){
+			start = MAX_LENGTH;
+			if(percent) text[--start] = '%';
+			for(int i = 0; i < decimals; i++){
+				text[--start] = (char)('0' + value%10);
+				value /= 10;
+			}
+			if(decimals > 0) text[--start] = '.';
+			// Always at least one digit before the decimal point
+			do{
+				text[--start] = (char)('0' + value%10);
+				value /= 10;
+			} while(value > 0 && start > 0);
+		}
+
+		/**
+		 * Clears the image and draws the formatted characters into it from the atlas.
+		 */
+		private void redraw(){
+			Graphics2D g2d = image.createGraphics();
+			g2d.setComposite(AlphaComposite.Clear);
+			g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+			g2d.setComposite(AlphaComposite.SrcOver);
+
+			int currentX = alignRight ? image.getWidth() : 0;
+			for(int i = start; i < MAX_LENGTH; i++){
+				// Right aligned numbers are drawn from their last character back
+				int glyph = getGlyph(text[alignRight ? MAX_LENGTH-1 - (i-start) : i]);
+				int width = (int)(glyphWidth[glyph]*scale);
+				if(alignRight){
+					drawGlyph(g2d, glyph, currentX-width, width);
+					currentX -= width + GLYPH_GAP;
+				}
+				else{
+					drawGlyph(g2d, glyph, currentX, width);
+					currentX += width + GLYPH_GAP;
+				}
+			}
+			drawnWidth = alignRight ? image.getWidth() - currentX : currentX;
+			g2d.dispose();
+		}
+
+		/**
+		 * Draws one glyph from the atlas, scaled to the given size.
+		 */
+		private void drawGlyph(Graphics2D g2d, int glyph, int x, int width){
+			int height = (int)(glyphHeight[glyph]*scale);
+			g2d.drawImage(atlas, x, 0, x+width, height, glyphX[glyph], 0, glyphX[glyph]+glyphWidth[glyph], glyphHeight[glyph], null);
+		}
+
+		/**
+		 * Draws the part of the image holding the number, unscaled, with its top right (or top left) corner at the given position.
+		 */
+		private void draw(Graphics2D g2d, int x, int y){
+			int sourceX = alignRight ? image.getWidth() - drawnWidth : 0;
+			int left = alignRight ? x - drawnWidth : x;
+			g2d.drawImage(image, left, y, left + drawnWidth, y + image.getHeight(), sourceX, 0, sourceX + drawnWidth, image.getHeight(), null);
+		}
+	}
+
+	/**
+	 * Returns the index in the atlas of a character's glyph.
+	 */
+	private static int getGlyph(char c){
+		if(c == '.') return DOT;
+		if(c == '%') return PERCENT;
+		return c - '0';
+	}
+}
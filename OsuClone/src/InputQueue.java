@@ -0,0 +1,126 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A queue of timestamped input events, passed from the event dispatch
+ * thread (which adds them) to whichever thread simulates the game
+ * (which takes them), without any locking.
+ *
+ * Events are kept as primitives in a fixed ring of slots, so adding and
+ * taking them never allocates. Only one thread may add events and only
+ * one may take them; the two only ever share the two counters below.
+ *
+ * @author Robert Campbell
+ */
+public class InputQueue {
+	// The kinds of event
+	public static final int MOUSE_MOVE = 0;
+	public static final int MOUSE_PRESS = 1;
+	public static final int MOUSE_RELEASE = 2;
+	public static final int KEY_PRESS = 3;
+	public static final int KEY_RELEASE = 4;
+
+	// The number of slots; must be a power of two
+	private static final int CAPACITY = 1024;
+	private static final int MASK = CAPACITY - 1;
+
+	// The events waiting, in a circle of slots
+	private final int[] type = new int[CAPACITY];
+	private final int[] x = new int[CAPACITY];
+	private final int[] y = new int[CAPACITY];
+	private final long[] time = new long[CAPACITY];
+
+	// The number of events ever added and ever taken; written only by the adding and taking threads respectively
+	private final AtomicLong added = new AtomicLong();
+	private final AtomicLong taken = new AtomicLong();
+	// The number of events which didn't fit
+	private volatile int droppedCount = 0;
+
+	// The event most recently taken; only used by the taking thread
+	private int currentType;
+	private int currentX;
+	private int currentY;
+	private long currentTime;
+
+	/**
+	 * Adds an event. Only to be called by the one thread which adds events.
+	 * @param type The kind of event; MOUSE_MOVE, MOUSE_PRESS, etc.
+	 * @param x The x position of the mouse.
+	 * @param y The y position of the mouse.
+	 * @param time When (System.nanoTime()) the event happened.
+	 * @return Whether the event was added; false if the queue was full.
+	 */
+	public boolean offer(int type, int x, int y, long time){
+		long next = added.get();
+		if(next - taken.get() >= CAPACITY){
+			droppedCount++;
+			return false;
+		}
+
+		int slot = (int)(next & MASK);
+		this.type[slot] = type;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.time[slot] = time;
+		// Publishes the slot to the taking thread
+		added.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the next event if it happened at or before the given time, after which
+	 * it can be read with getType(), getX(), getY() and getTime(). Only to be called
+	 * by the one thread which takes events.
+	 * @param latestTime The latest time (System.nanoTime()) of event to take.
+	 * @return Whether an event was taken.
+	 */
+	public boolean poll(long latestTime){
+		long next = taken.get();
+		if(next >= added.get()) return false;
+
+		int slot = (int)(next & MASK);
+		if(time[slot] - latestTime > 0) return false;
+
+		currentType = type[slot];
+		currentX = x[slot];
+		currentY = y[slot];
+		currentTime = time[slot];
+		// Frees the slot for the adding thread
+		taken.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * Returns the kind of the event last taken.
+	 */
+	public int getType(){
+		return currentType;
+	}
+
+	/**
+	 * Returns the mouse x position of the event last taken.
+	 */
+	public int getX(){
+		return currentX;
+	}
+
+	/**
+	 * Returns the mouse y position of the event last taken.
+	 */
+	public int getY(){
+		return currentY;
+	}
+
+	/**
+	 * Returns when (System.nanoTime()) the event last taken happened.
+	 */
+	public long getTime(){
+		return currentTime;
+	}
+
+	/**
+	 * Returns the number of events which were dropped because the queue was full.
+	 */
+	public int getDroppedCount(){
+		return droppedCount;
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Keeps the time within a map which is being played. Everything which
+ * needs to know the map time (the simulation, judging input and drawing)
+ * gets it from the one clock, so they can never disagree.
+ *
+ * Map time is in ms, with 0 being when the map starts; system time is
+ * as given by System.nanoTime().
+ *
+ * @author Robert Campbell
+ */
+public interface MapClock {
+	/**
+	 * Starts the clock; the map time is 0 now.
+	 */
+	public void start();
+
+	/**
+	 * Gives the clock the chance to correct itself; should be called
+	 * regularly (every frame or tick) while the map is playing.
+	 * @param nanoTime The system time now.
+	 */
+	public void update(long nanoTime);
+
+	/**
+	 * Returns the map time at the given system time.
+	 */
+	public double getMapTime(long nanoTime);
+
+	/**
+	 * Returns the system time at which it will be (or was) the given map time.
+	 */
+	public long getNanoTime(double mapTime);
+
+	/**
+	 * Stops the map time while the game is paused.
+	 */
+	public void pause();
+
+	/**
+	 * Starts the map time again after a pause.
+	 */
+	public void resume();
+
+	/**
+	 * Moves the map time forward.
+	 * @param time The amount of time (ms) to skip.
+	 */
+	public void skip(double time);
+
+	/**
+	 * Returns a one line description of how well the clock kept time.
+	 */
+	public String getReport();
+}
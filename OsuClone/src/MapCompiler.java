@@ -0,0 +1,165 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Scanner;
+
+/**
+ * Loads maps from a compact binary ('compiled') form, which is built once
+ * from the text map file and rebuilt whenever the text file is modified.
+ *
+ * The compiled file sits next to the text file and is laid out as:
+ * - A fixed header; magic number, format version, the modification time of
+ *   the text file it was built from, the OD, AR, CS and HP levels, the audio
+ *   start time and the initial break end time.
+ * - The map's elements as written by HitObjects; the number of elements
+ *   followed by one array of integers for each of their values.
+ *
+ * Reading is a couple of bulk reads from a file channel, so loading a map
+ * is little more than copying integer arrays out of the page cache. The file
+ * isn't memory mapped, as a mapped file stays mapped until it is garbage
+ * collected, and on Windows it can't be replaced with a rebuilt one until then.
+ *
+ * @author Robert Campbell
+ */
+public class MapCompiler {
+	// Identifies a compiled map file ("OSUM")
+	private static final int MAGIC = 0x4F53554D;
+	// Should be incremented whenever the layout below changes, so that old files get rebuilt
+	private static final int VERSION = 2;
+	// The size, in bytes, of the fixed header
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4*6;
+
+	/**
+	 * Loads the map with the given name; from its compiled file if that is
+	 * up to date, or otherwise from its text file, compiling it for next time.
+	 * @param name The name of the map (its folder within the maps folder).
+	 * @return The loaded map.
+	 * @throws IOException If neither the compiled file nor the text file could be read.
+	 */
+	public static GameMap load(String name) throws IOException {
+		File source = getSourceFile(name);
+		File compiled = getCompiledFile(name);
+		long sourceModified = source.lastModified();
+
+		// Use the compiled file if it was built from the current version of the text file
+		if(compiled.isFile()){
+			try{
+				GameMap map = read(name, compiled, sourceModified);
+				if(map != null) return map;
+			}
+			// A broken compiled file isn't fatal; it'll just be rebuilt
+			catch(IOException | RuntimeException e){
+				System.err.println("Could not read compiled map file '"+compiled+"', rebuilding it. " + e);
+			}
+		}
+
+		// Otherwise fall back to the text parser
+		GameMap map = new GameMap(name, new Scanner(source));
+
+		// And save the compiled version; if this fails we still have a perfectly good map
+		try{ write(map, compiled, sourceModified); }
+		catch(IOException e){ System.err.println("Could not write compiled map file '"+compiled+"'. " + e); }
+
+		return map;
+	}
+
+	/**
+	 * Returns the text map file of the map with the given name.
+	 */
+	public static File getSourceFile(String name){
+		return new File("maps/" + name + "/map");
+	}
+
+	/**
+	 * Returns the compiled map file of the map with the given name.
+	 */
+	public static File getCompiledFile(String name){
+		return new File("maps/" + name + "/map.compiled");
+	}
+
+	/**
+	 * Reads a map from a compiled file.
+	 * @param sourceModified The modification time of the text file; if the compiled
+	 *        file wasn't built from this version, it is considered stale.
+	 * @return The map, or null if the compiled file is stale or of an old version.
+	 */
+	private static GameMap read(String name, File compiled, long sourceModified) throws IOException {
+		try(FileChannel channel = FileChannel.open(compiled.toPath(), StandardOpenOption.READ)){
+			long size = channel.size();
+			if(size < HEADER_SIZE) return null;
+
+			// Check the header before reading anything else, as a stale file is about to be replaced
+			ByteBuffer header = readFully(channel, HEADER_SIZE);
+			if(header.getInt() != MAGIC) return null;
+			if(header.getInt() != VERSION) return null;
+			if(header.getLong() != sourceModified) return null;
+
+			int odValue = header.getInt();
+			int arValue = header.getInt();
+			int csValue = header.getInt();
+			int healthValue = header.getInt();
+			int audioStartTime = header.getInt();
+			int initialBreakEndTime = header.getInt();
+
+			if(size - HEADER_SIZE > Integer.MAX_VALUE) throw new IOException("Compiled map file is too large");
+			HitObjects hitObjects = HitObjects.read(readFully(channel, (int)(size - HEADER_SIZE)).asIntBuffer());
+
+			return new GameMap(name, audioStartTime, odValue, arValue, csValue, healthValue, initialBreakEndTime, hitObjects);
+		}
+	}
+
+	/**
+	 * Reads the given number of bytes from the channel's current position.
+	 * @return A buffer of the bytes read, ready to be read from.
+	 * @throws IOException If the file ends first.
+	 */
+	private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()){
+			if(channel.read(buffer) < 0) throw new IOException("Compiled map file ended early");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Writes a map to a compiled file. The file is written beside its
+	 * destination first and then moved into place, so a half-written
+	 * file can never be read.
+	 * @param sourceModified The modification time of the text file the map was read from.
+	 */
+	public static void write(GameMap map, File compiled, long sourceModified) throws IOException {
+		File temp = File.createTempFile("map", ".tmp", compiled.getParentFile());
+		try{
+			HitObjects hitObjects = map.getHitObjects();
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4*hitObjects.getWrittenSize());
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(sourceModified);
+
+			buffer.putInt(map.getRawOD());
+			buffer.putInt(map.getRawAR());
+			buffer.putInt(map.getRawCS());
+			buffer.putInt(map.getRawHealth());
+			buffer.putInt(map.getAudioStartTime());
+			buffer.putInt(map.getInitialBreakEnd());
+
+			hitObjects.write(buffer.asIntBuffer());
+			buffer.rewind();
+
+			try(FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)){
+				while(buffer.hasRemaining()) channel.write(buffer);
+			}
+			Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally{
+			// Only still exists if something went wrong
+			temp.delete();
+		}
+	}
+}
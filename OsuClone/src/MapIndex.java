@@ -0,0 +1,125 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An on-disk index of map summaries (MapInfo), keyed by the map's folder.
+ * A summary is only valid while the modification time of the map's file
+ * is the same as when the summary was made, so that edited maps are picked
+ * up again. This lets the menu come up without loading any maps.
+ * Summaries may be looked up and added from several threads at once.
+ *
+ * @author Robert Campbell
+ */
+public class MapIndex {
+	// Identifies an index file ("OSUI")
+	private static final int MAGIC = 0x4F535549;
+	// Should be incremented whenever the layout of MapInfo changes
+	private static final int VERSION = 1;
+
+	// The file that this index is saved to
+	private File file;
+	// All summaries in the index, keyed by folder path
+	private Map<String, MapInfo> entries = new ConcurrentHashMap<String, MapInfo>();
+	// Whether the index has changed since it was loaded
+	private volatile boolean changed = false;
+
+	/**
+	 * Constructor; creates an empty index which will be saved to the given file.
+	 */
+	public MapIndex(File file){
+		this.file = file;
+	}
+
+	/**
+	 * Loads the index from the given file. If the file doesn't exist or can't be
+	 * read, gives an empty index; all maps will then simply be indexed again.
+	 */
+	public static MapIndex load(File file){
+		MapIndex index = new MapIndex(file);
+		if(!file.isFile()) return index;
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) return index;
+
+			int count = in.readInt();
+			for(int i = 0; i < count; i++){
+				MapInfo info = MapInfo.read(in);
+				index.entries.put(info.getFolder(), info);
+			}
+		}
+		catch(IOException e){
+			System.err.println("Could not read map index file '"+file+"', rebuilding it. " + e);
+			index.entries.clear();
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the summary of the map in the given folder, or null if there is
+	 * none or if the map's file has been modified since it was made.
+	 * @param folder The path of the map's folder.
+	 * @param modified The current modification time of the map's file.
+	 */
+	public MapInfo get(String folder, long modified){
+		MapInfo info = entries.get(folder);
+		if(info == null || info.getModified() != modified) return null;
+		return info;
+	}
+
+	/**
+	 * Adds or replaces the summary of a map.
+	 */
+	public void put(MapInfo info){
+		entries.put(info.getFolder(), info);
+		changed = true;
+	}
+
+	/**
+	 * Removes all summaries except those of the given folders;
+	 * used to forget maps which have been deleted.
+	 */
+	public void retainOnly(Collection<String> folders){
+		if(entries.keySet().retainAll(folders)) changed = true;
+	}
+
+	/**
+	 * Saves the index back to its file if it has changed. The file is written
+	 * beside its destination first and then moved into place.
+	 */
+	public void save(){
+		if(!changed) return;
+
+		try{
+			File temp = File.createTempFile("mapIndex", ".tmp", file.getAbsoluteFile().getParentFile());
+			try{
+				try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))){
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(entries.size());
+					for(MapInfo info : entries.values()){
+						info.write(out);
+					}
+				}
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				changed = false;
+			}
+			finally{
+				temp.delete();
+			}
+		}
+		catch(IOException e){
+			System.err.println("Could not save map index file '"+file+"'. " + e);
+		}
+	}
+}
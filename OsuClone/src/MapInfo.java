@@ -0,0 +1,174 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A summary of a map; everything the menu needs to know about a map
+ * without having to load the map itself. These are stored in the
+ * MapIndex, so that they don't have to be worked out every startup.
+ *
+ * @author Robert Campbell
+ */
+public class MapInfo {
+	// The name of the map; this is also the name of its folder
+	private final String name;
+	// The path of the map's folder
+	private final String folder;
+	// The modification time of the map's file when this was created
+	private final long modified;
+
+	// The raw (usually 1-10) difficulty levels of the map
+	private final int odValue;
+	private final int arValue;
+	private final int csValue;
+	private final int healthValue;
+
+	// The number of elements (including breaks) in the map
+	private final int elementCount;
+	// The time (ms) at which the last element of the map ends
+	private final int duration;
+
+	// The audio file of the map and when (ms) within it the map starts
+	private final String audio;
+	private final int audioStartTime;
+
+	/**
+	 * Constructor; instantiates MapInfo with all its values.
+	 */
+	public MapInfo(String name, String folder, long modified, int odValue, int arValue, int csValue, int healthValue,
+			int elementCount, int duration, String audio, int audioStartTime){
+		this.name = name;
+		this.folder = folder;
+		this.modified = modified;
+		this.odValue = odValue;
+		this.arValue = arValue;
+		this.csValue = csValue;
+		this.healthValue = healthValue;
+		this.elementCount = elementCount;
+		this.duration = duration;
+		this.audio = audio;
+		this.audioStartTime = audioStartTime;
+	}
+
+	/**
+	 * Creates the summary of a map which has been fully loaded.
+	 * @param folder The path of the map's folder.
+	 * @param modified The modification time of the map's file.
+	 */
+	public static MapInfo fromMap(GameMap map, String folder, long modified){
+		// The map lasts until its last element ends
+		HitObjects hitObjects = map.getHitObjects();
+		return new MapInfo(map.getName(), folder, modified, map.getRawOD(), map.getRawAR(), map.getRawCS(), map.getRawHealth(),
+				hitObjects.size(), hitObjects.getLastEndTime(), map.getAudio(), map.getAudioStartTime());
+	}
+
+	/**
+	 * Reads a summary which was written by write(DataOutput).
+	 */
+	public static MapInfo read(DataInput in) throws IOException {
+		return new MapInfo(in.readUTF(), in.readUTF(), in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+				in.readInt(), in.readInt(), in.readUTF(), in.readInt());
+	}
+
+	/**
+	 * Writes this summary so that it can be read back by read(DataInput).
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(name);
+		out.writeUTF(folder);
+		out.writeLong(modified);
+		out.writeInt(odValue);
+		out.writeInt(arValue);
+		out.writeInt(csValue);
+		out.writeInt(healthValue);
+		out.writeInt(elementCount);
+		out.writeInt(duration);
+		out.writeUTF(audio);
+		out.writeInt(audioStartTime);
+	}
+
+	/**
+	 * Returns the name of the map.
+	 */
+	public String getName(){
+		return name;
+	}
+
+	/**
+	 * Returns the path of the map's folder.
+	 */
+	public String getFolder(){
+		return folder;
+	}
+
+	/**
+	 * Returns the modification time of the map's file when this summary was made.
+	 */
+	public long getModified(){
+		return modified;
+	}
+
+	/**
+	 * Returns the raw overall difficulty level of the map.
+	 */
+	public int getRawOD(){
+		return odValue;
+	}
+
+	/**
+	 * Returns the raw approach rate level of the map.
+	 */
+	public int getRawAR(){
+		return arValue;
+	}
+
+	/**
+	 * Returns the raw circle size level of the map.
+	 */
+	public int getRawCS(){
+		return csValue;
+	}
+
+	/**
+	 * Returns the raw health level of the map.
+	 */
+	public int getRawHealth(){
+		return healthValue;
+	}
+
+	/**
+	 * Returns the number of elements in the map.
+	 */
+	public int getElementCount(){
+		return elementCount;
+	}
+
+	/**
+	 * Returns the time (ms) at which the map's last element ends.
+	 */
+	public int getDuration(){
+		return duration;
+	}
+
+	/**
+	 * Returns the audio file name for the map.
+	 */
+	public String getAudio(){
+		return audio;
+	}
+
+	/**
+	 * Returns the file name of the background image of the map.
+	 * This file may not exist, as maps don't need a background image.
+	 */
+	public String getBackgroundFile(){
+		return "maps/" + name + "/background.jpg";
+	}
+
+	/**
+	 * Returns the time at which the audio file should start for the map.
+	 */
+	public int getAudioStartTime(){
+		return audioStartTime;
+	}
+}
@@ -0,0 +1,137 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Scans the map folder for maps, across all cores, on a fork-join pool.
+ *
+ * Maps' files should be contained within a folder; e.g. a path for a map could be "/maps/Scarlet Rose (Hard)", with
+ * that folder containing "background.jpg", "audio.mp3" and "map". Each map is looked up in the map index, and
+ * only loaded (and compiled) if it isn't there or has changed. Summaries are handed out as soon as each map is
+ * done, so that the menu can show the first maps while the rest are still being scanned.
+ *
+ * @author Robert Campbell
+ */
+public class MapScanner {
+	// Folders are split between tasks until there are at most this many in one task
+	private static final int FOLDERS_PER_TASK = 8;
+
+	// The index to look maps up in and add new summaries to
+	private MapIndex index;
+	// Receives the summary of every map found; called from the pool's threads
+	private Consumer<MapInfo> listener;
+	// The pool to scan on
+	private ForkJoinPool pool;
+
+	// The folders of all maps found so far
+	private Set<String> foundFolders = ConcurrentHashMap.newKeySet();
+	// The number of maps which couldn't be found in the index, so had to be loaded
+	private AtomicInteger loadedCount = new AtomicInteger();
+
+	/**
+	 * Constructor; instantiates MapScanner.
+	 * @param index The map index to look maps up in. Must not be used elsewhere during a scan.
+	 * @param listener Receives the summary of every map found, from the scanning threads.
+	 */
+	public MapScanner(MapIndex index, Consumer<MapInfo> listener){
+		this.index = index;
+		this.listener = listener;
+		this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Starts scanning the map folder given in Options, and returns immediately.
+	 * Once every map has been found, the index is saved, the scan's throughput
+	 * is reported and onFinished is run (from a scanning thread).
+	 */
+	public void start(final Runnable onFinished){
+		pool.execute(new Runnable(){
+			public void run(){
+				long startTime = System.nanoTime();
+
+				File[] folders = new File(Options.MAP_FOLDER).listFiles();
+				if(folders == null){
+					System.err.println("Could not read from map folder '"+Options.MAP_FOLDER+"'.");
+					folders = new File[0];
+				}
+				new ScanTask(folders, 0, folders.length).invoke();
+
+				// Forget about any maps that have been deleted, and save any that were found
+				index.retainOnly(foundFolders);
+				index.save();
+
+				double seconds = (System.nanoTime() - startTime) / 1e9;
+				System.out.println(String.format("Scanned %d maps (%d loaded) in %.0f ms on %d threads; %.0f maps/sec",
+						foundFolders.size(), loadedCount.get(), seconds*1000, pool.getParallelism(), foundFolders.size()/Math.max(seconds, 1e-9)));
+
+				pool.shutdown();
+				onFinished.run();
+			}
+		});
+	}
+
+	/**
+	 * Scans a range of map folders, splitting it in half
+	 * until there are few enough folders to do directly.
+	 */
+	private class ScanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private File[] folders;
+		private int start;
+		private int end;
+
+		public ScanTask(File[] folders, int start, int end){
+			this.folders = folders;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute(){
+			if(end - start <= FOLDERS_PER_TASK){
+				for(int i = start; i < end; i++){
+					scanFolder(folders[i]);
+				}
+				return;
+			}
+			int middle = (start + end) / 2;
+			invokeAll(new ScanTask(folders, start, middle), new ScanTask(folders, middle, end));
+		}
+	}
+
+	/**
+	 * Finds the summary of the map in the given folder and passes it to the listener;
+	 * from the index if the map hasn't changed since it was indexed, or otherwise by
+	 * loading the map and adding its summary to the index.
+	 */
+	private void scanFolder(File folder){
+		if(!folder.isDirectory()) return;
+
+		String name = folder.getName();
+		String path = folder.getPath();
+		long modified = MapCompiler.getSourceFile(name).lastModified();
+
+		MapInfo info = index.get(path, modified);
+		if(info == null){
+			try{
+				info = MapInfo.fromMap(MapCompiler.load(name), path, modified);
+				index.put(info);
+				loadedCount.incrementAndGet();
+			}
+			// Leave out maps that can't be read at all
+			catch(IOException | RuntimeException e){
+				System.err.println("Could not read from map file '"+name+"'. Is this file not present? Details: " + e);
+				return;
+			}
+		}
+
+		foundFolders.add(path);
+		listener.accept(info);
+	}
+}
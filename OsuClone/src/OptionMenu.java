@@ -162,6 +162,11 @@ public class OptionMenu extends JFrame{
 				userStream.println(entry.getKey() + ";" + Options.getReadableOptionNames().get(entry.getKey()) + ";" + optionComponentString.get(entry.getKey()).getText() + ";");
 			}
 			userStream.close();
+			
+			// Read them back in, so that they take effect straight away
+			Options.init();
+			// The skin may have been changed too
+			SkinCache.reload();
 		}
 		catch(IOException e){
 			System.err.println("Could not save back to user option file! " + e);
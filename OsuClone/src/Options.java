@@ -41,6 +41,15 @@ public class Options {
 	public static int END_WINDOW_INITIAL_Y = 200;
 	public static boolean END_WINDOW_RESIZABLE = false;
 
+	// The maximum total size, in bytes, of the background images kept decoded in memory
+	public static long BACKGROUND_CACHE_BYTES = 64*1024*1024;
+
+	// Whether the game is drawn by its own thread onto a canvas (rather than by Swing), how many
+	// buffers it draws with (2 or 3), and the most frames per second it draws (0 for no limit)
+	public static boolean GAME_ACTIVE_RENDERING;
+	public static int GAME_RENDER_BUFFERS;
+	public static int GAME_FRAME_CAP;
+
 	public static int GAME_TICK_TIME = 20;
 	public static int GAME_CIRCLE_SIZE = 100;
 	
@@ -58,6 +67,8 @@ public class Options {
 	public final static String PROGRAM_OPTION_FILE = "programOptions.txt";
 	public final static String USER_OPTION_FILE = "userOptions.txt";
 	public final static String DEFAULT_BG = "defaultbg.jpg";
+	public final static String MAP_INDEX_FILE = "mapIndex.dat";
+	public final static String THUMBNAIL_FOLDER = "cache/thumbnails";
 	
 	// Skin graphics
 	public final static String SKIN_HIT_0 = "skin/hit0.png";
@@ -199,6 +210,12 @@ public class Options {
 		GAME_WINDOW_INITIAL_Y = numOptions.get("GAME_WINDOW_INITIAL_Y");
 		GAME_WINDOW_RESIZABLE = boolOptions.get("GAME_WINDOW_RESIZABLE");
 
+		GAME_RENDER_BUFFERS = numOptions.get("GAME_RENDER_BUFFERS");
+		GAME_FRAME_CAP = numOptions.get("GAME_FRAME_CAP");
+		// This one is chosen by the user, in the option menu
+		Boolean activeRendering = boolUserOptions.get("GAME_ACTIVE_RENDERING");
+		GAME_ACTIVE_RENDERING = activeRendering != null && activeRendering;
+
 		// For safety, rather than casting to char, just get the first character
 		GAME_KEY_1 = stringOptions.get("GAME_KEY_1").charAt(0);
 		GAME_KEY_2 = stringOptions.get("GAME_KEY_2").charAt(0);
@@ -236,8 +253,8 @@ public class Options {
 
 			// While the scanner still has entries,
 			while(s.hasNext()){
-				// Take the next string as the option descriptor
-				String descriptor = s.next();
+				// Take the next string as the option descriptor; user options are each on their own line
+				String descriptor = s.next().trim();
 				// If there's nothing after the semicolon, there's no next element
 				if(!s.hasNext())
 					break;
@@ -0,0 +1,125 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Short sounds (such as hit sounds), decoded once into PCM in the format
+ * that SoundMixer plays, so that playing one is just a matter of reading
+ * through an array. Sounds are referred to by the id given when loading.
+ *
+ * @author Robert Campbell
+ */
+public class SampleBank {
+	// The format that every sample is converted to; 16 bit signed stereo
+	public static final float SAMPLE_RATE = 44100;
+	public static final int CHANNELS = 2;
+
+	// The ids of sounds already loaded, by file name
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	// The samples of each sound, interleaved left and right, by id; replaced (never changed) when sounds are added
+	private volatile short[][] samples = new short[0][];
+
+	/**
+	 * Loads a sound, if it hasn't been loaded already. Sounds which can't be
+	 * read or decoded are reported once and then kept as silence.
+	 * @param fname The file name of the sound.
+	 * @return The id of the sound.
+	 */
+	public synchronized int load(String fname){
+		Integer id = ids.get(fname);
+		if(id != null) return id;
+
+		short[] decoded;
+		try{
+			decoded = decode(new File(fname));
+		}
+		catch(IOException | UnsupportedAudioFileException | IllegalArgumentException e){
+			System.err.println("Could not load sound '" + fname + "'; it will not be played. " + e);
+			decoded = new short[0];
+		}
+
+		short[][] newSamples = new short[samples.length + 1][];
+		System.arraycopy(samples, 0, newSamples, 0, samples.length);
+		newSamples[samples.length] = decoded;
+		samples = newSamples;
+
+		ids.put(fname, samples.length - 1);
+		return samples.length - 1;
+	}
+
+	/**
+	 * Returns the samples of the sound with the given id, interleaved left and right.
+	 */
+	public short[] get(int id){
+		return samples[id];
+	}
+
+	/**
+	 * Decodes a sound file to 16 bit stereo samples at the mixer's sample rate.
+	 */
+	private static short[] decode(File file) throws IOException, UnsupportedAudioFileException {
+		try(AudioInputStream source = AudioSystem.getAudioInputStream(file)){
+			AudioFormat sourceFormat = source.getFormat();
+			int channels = sourceFormat.getChannels();
+			float rate = sourceFormat.getSampleRate();
+
+			// Java Sound can change the encoding, but not (reliably) the sample rate or channels, so those are done below
+			AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels*2, rate, false);
+			try(AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source)){
+				byte[] bytes = readAll(pcm);
+
+				short[] pcmSamples = new short[bytes.length / 2];
+				for(int i = 0; i < pcmSamples.length; i++){
+					pcmSamples[i] = (short)((bytes[2*i] & 0xFF) | (bytes[2*i+1] << 8));
+				}
+				return convert(pcmSamples, channels, rate);
+			}
+		}
+	}
+
+	/**
+	 * Converts interleaved samples with any number of channels and any sample rate to
+	 * stereo at the mixer's rate; mono is played on both sides, and linear interpolation
+	 * is good enough for short sound effects.
+	 */
+	private static short[] convert(short[] source, int channels, float rate){
+		int sourceFrames = source.length / channels;
+		int frames = (int)((long)sourceFrames * SAMPLE_RATE / rate);
+		short[] result = new short[frames * CHANNELS];
+
+		for(int frame = 0; frame < frames; frame++){
+			double position = frame * rate / SAMPLE_RATE;
+			int before = Math.min((int)position, sourceFrames - 1);
+			int after = Math.min(before + 1, sourceFrames - 1);
+			double fraction = position - before;
+
+			for(int c = 0; c < CHANNELS; c++){
+				int sourceChannel = Math.min(c, channels - 1);
+				double value = source[before*channels + sourceChannel] * (1 - fraction) + source[after*channels + sourceChannel] * fraction;
+				result[frame*CHANNELS + c] = (short)value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the rest of a stream.
+	 */
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) > 0){
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,206 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * A shared, statically accessed cache of the skin's images, so that each
+ * one is only decoded once however many games, pause menus and end screens
+ * are shown.
+ *
+ * Every image is decoded at the same time, on a few background threads,
+ * and converted to the screen's own image format so that drawing it is
+ * just a copy. If the skin changes, reload() decodes them all again.
+ *
+ * @author Robert Campbell
+ */
+public class SkinCache {
+	// The decoded images by file name; replaced all at once when loading finishes
+	private static volatile Map<String, BufferedImage> images = Collections.emptyMap();
+	// The loading (or loaded) images; null if they haven't been asked for yet
+	private static CompletableFuture<Map<String, BufferedImage>> loading = null;
+	// Counts the times loading has been started, so that only the latest load's images are used
+	private static int generation = 0;
+
+	// The threads that images are decoded on
+	private static final ExecutorService decoders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory(){
+		public Thread newThread(Runnable r){
+			Thread thread = new Thread(r, "Skin decoder");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Starts decoding every skin image, if that hasn't been done already.
+	 * @return A future which completes once they have all been decoded.
+	 */
+	public static synchronized CompletableFuture<Void> load(){
+		if(loading == null) loading = decodeAll(++generation);
+		return loading.thenApply(loaded -> (Void)null);
+	}
+
+	/**
+	 * Decodes every skin image again, for when the skin has changed. The
+	 * old images are still given out until the new ones are all ready.
+	 * @return A future which completes once they have all been decoded.
+	 */
+	public static synchronized CompletableFuture<Void> reload(){
+		loading = decodeAll(++generation);
+		return loading.thenApply(loaded -> (Void)null);
+	}
+
+	/**
+	 * Returns the skin image from the given file. While the skin is being reloaded,
+	 * the image from the previous skin is returned. If the skin hasn't been decoded
+	 * at all yet, other threads wait for it, but the event dispatch thread mustn't
+	 * freeze, so it decodes just the image it needs instead.
+	 * Images which aren't part of the skin are decoded and kept the first time they are asked for.
+	 * @param fname The file name of the image; one of the Options.SKIN_* images.
+	 * @return The image, or null if it couldn't be read.
+	 */
+	public static BufferedImage get(String fname){
+		Map<String, BufferedImage> current = images;
+		if(current.containsKey(fname)) return current.get(fname);
+
+		CompletableFuture<Void> loaded = load();
+		if(!SwingUtilities.isEventDispatchThread()){
+			// If it's still loading, wait for it
+			loaded.join();
+			current = images;
+			if(current.containsKey(fname)) return current.get(fname);
+		}
+
+		return addImage(fname);
+	}
+
+	/**
+	 * Returns the skin image of the given digit (0-9).
+	 */
+	public static BufferedImage getNumber(int digit){
+		return get(Options.SKIN_NUMBER_BASE + digit + Options.SKIN_NUMBER_END);
+	}
+
+	/**
+	 * Decodes an image which isn't in the list of skin images (or hasn't been
+	 * decoded with them yet), and keeps it with the rest.
+	 */
+	private static synchronized BufferedImage addImage(String fname){
+		if(images.containsKey(fname)) return images.get(fname);
+
+		Map<String, BufferedImage> updated = new HashMap<String, BufferedImage>(images);
+		BufferedImage image = decode(fname);
+		updated.put(fname, image);
+		images = updated;
+		return image;
+	}
+
+	/**
+	 * Starts decoding every skin image in parallel.
+	 * @param loadGeneration The generation of this load; its images are only used if no load has been started since.
+	 * @return A future which completes, with all the images, once they have all been decoded.
+	 */
+	private static CompletableFuture<Map<String, BufferedImage>> decodeAll(int loadGeneration){
+		long startTime = System.nanoTime();
+		List<String> files = getSkinFiles();
+
+		List<CompletableFuture<BufferedImage>> decoded = new ArrayList<CompletableFuture<BufferedImage>>();
+		for(String fname : files){
+			decoded.add(CompletableFuture.supplyAsync(() -> decode(fname), decoders));
+		}
+
+		return CompletableFuture.allOf(decoded.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+			Map<String, BufferedImage> loaded = new HashMap<String, BufferedImage>();
+			for(int i = 0; i < files.size(); i++){
+				loaded.put(files.get(i), decoded.get(i).join());
+			}
+			// Locked so that an image being added at the same time isn't lost; and if the skin was
+			// reloaded while this was decoding, the newer load's images are the ones to use
+			synchronized(SkinCache.class){
+				if(loadGeneration == generation) images = loaded;
+			}
+			System.out.println(String.format("Decoded %d skin images in %.0f ms", files.size(), (System.nanoTime()-startTime)/1e6));
+			return loaded;
+		});
+	}
+
+	/**
+	 * Returns the file names of every image in the skin.
+	 */
+	private static List<String> getSkinFiles(){
+		List<String> files = new ArrayList<String>();
+		Collections.addAll(files,
+				Options.SKIN_HIT_0, Options.SKIN_HIT_50, Options.SKIN_HIT_100, Options.SKIN_HIT_300,
+				Options.SKIN_HIT_CIRCLE, Options.SKIN_HIT_CIRCLE_OUTER, Options.SKIN_APPROACH_CIRCLE, Options.SKIN_HIT_CIRCLE_BORDER,
+				Options.SKIN_SKIP_BUTTON_IMAGE, Options.SKIN_PAUSE_MENU_BACKGROUND,
+				Options.SKIN_DOT, Options.SKIN_PERCENT,
+				Options.SKIN_HEALTHBAR_3, Options.SKIN_HEALTHBAR_2, Options.SKIN_HEALTHBAR_1,
+				Options.SKIN_SLIDER_FOLLOW_CIRCLE,
+				Options.SKIN_SS_RANK, Options.SKIN_S_RANK, Options.SKIN_A_RANK, Options.SKIN_B_RANK, Options.SKIN_C_RANK, Options.SKIN_D_RANK,
+				Options.SKIN_300_HIT, Options.SKIN_100_HIT, Options.SKIN_50_HIT, Options.SKIN_0_HIT,
+				Options.SKIN_RANKING_BACK_BUTTON, Options.SKIN_TEXT_ACCURACY, Options.SKIN_TEXT_RANKING, Options.SKIN_RANKING_PANEL);
+		for(int i = 0; i < 10; i++){
+			files.add(Options.SKIN_NUMBER_BASE + i + Options.SKIN_NUMBER_END);
+		}
+		return files;
+	}
+
+	/**
+	 * Decodes an image and converts it to the screen's format.
+	 * @return The image, or null if it couldn't be read.
+	 */
+	private static BufferedImage decode(String fname){
+		try{
+			BufferedImage image = ImageIO.read(new File(fname));
+			if(image == null) throw new IOException("Unknown image format");
+			return toCompatible(image);
+		}
+		catch(IOException e){
+			System.err.println("Could not read from skin image file '"+fname+"'. " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a copy of an image in the format of the screen, so that it can be
+	 * drawn without being converted every time. Without a screen, returns it as it is.
+	 */
+	private static BufferedImage toCompatible(BufferedImage image){
+		if(GraphicsEnvironment.isHeadless()) return image;
+
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		if(image.getColorModel().equals(config.getColorModel(image.getTransparency()))) return image;
+
+		BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+		Graphics2D g2d = compatible.createGraphics();
+		g2d.drawImage(image, 0, 0, null);
+		g2d.dispose();
+		return compatible;
+	}
+
+	/**
+	 * Creates a blank, transparent image in the format of the screen (or a plain
+	 * ARGB image without a screen), for drawing sprites into.
+	 */
+	public static BufferedImage createImage(int width, int height){
+		if(GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		return config.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+	}
+}
@@ -12,31 +12,21 @@
  */
 public class Slider implements Element {
 	// The time at which the start of the slider should be clicked
-	private int startTime;
+	private final int startTime;
 	// The time at which the slider should reach the end
-	private int endTime;
+	private final int endTime;
 	// The length, in pixels, of the slider
-	private int length;
+	private final int length;
 	// The angle which the slider faces. This is
 	// - 0 degrees for the end of the slider being directly to the right of its start
 	// - 90 degrees for the end of the slider being directly down from its start, etc.
-	private double angle;
+	private final double angle;
 
 	// The x and y positions of the start of the slider
-	private int x;
-	private int y;
+	private final int x;
+	private final int y;
 
-	private int id;
-
-	// The amount of 'points' accrued on the slider;
-	// the amount of these points by the time the slider
-	// ends determines the score gained from the slider.
-	public int sliderPoints = 0;
-
-	// The current position of the slider follow circle
-	// relative to the slider. Should be between 0 and
-	// the slider's length.
-	public double followCirclePos = 0;
+	private final int id;
 
 	/**
 	 * Constructor; instantiates Slider.
@@ -48,6 +38,21 @@ public class Slider implements Element {
 	 * @param y The y position of the start of the slider.
 	 */
 	public Slider(int startTime, int endTime, int length, int angle, int x, int y){
+		this(startTime, endTime, length, angle, x, y, 0);
+	}
+
+	/**
+	 * Constructor; instantiates Slider with an ID.
+	 * @param startTime The time at which the slider should be clicked.
+	 * @param endTime The time at which the slider should reach the end.
+	 * @param length The length, in pixels, of the slider.
+	 * @param angle The angle, relative to left->right and clockwise, at which this slider should be.
+	 * @param x The x position of the start of the slider.
+	 * @param y The y position of the start of the slider.
+	 * @param id The ID of this slider; its index in the map's HitObjects.
+	 */
+	public Slider(int startTime, int endTime, int length, int angle, int x, int y, int id){
+		this.id = id;
 		this.startTime = startTime;
 		this.endTime = endTime;
 		this.length = length;
@@ -82,6 +87,25 @@ public class Slider implements Element {
 		return angle/180*Math.PI;
 	}
 
+	/**
+	 * Returns the position of the follow circle along the slider at the given
+	 * time in the map; 0 before the slider starts, up to its length at the end.
+	 */
+	public double getFollowCirclePos(double mapTime){
+		if(endTime <= startTime) return mapTime < startTime ? 0 : length;
+		double proportion = (mapTime - startTime) / (endTime - startTime);
+		if(proportion < 0) proportion = 0;
+		if(proportion > 1) proportion = 1;
+		return proportion * length;
+	}
+
+	/**
+	 * Returns the angle of the slider in degrees, as it was given on construction
+	 */
+	public int getAngleDegrees(){
+		return (int)angle;
+	}
+
 	/**
 	 * Returns the length of the slider
 	 */
@@ -113,14 +137,6 @@ public class Slider implements Element {
 		return id;
 	}
 
-	@Override
-	/**
-	 * Sets the ID of the slider to the given parameter
-	 */
-	public void setId(int id) {
-		this.id = id;
-	}
-
 	@Override
 	/**
 	 * Finds if this element is equal to another element.
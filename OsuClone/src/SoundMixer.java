@@ -0,0 +1,175 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays short sounds from a SampleBank, any number at once, by mixing them
+ * on its own thread into a single output line which is kept open.
+ *
+ * Playing a sound only adds its id and volume to a ring of requests, which
+ * takes constant time and never waits for anything; the mixer thread picks
+ * them up before mixing each block. The line's buffer is kept small, so a
+ * sound starts within a few ms of being requested.
+ *
+ * @author Robert Campbell
+ */
+public class SoundMixer implements Runnable {
+	// The most sounds which can play at once; past this, the sound closest to finishing is cut off
+	private static final int MAX_VOICES = 32;
+	// The number of frames mixed at a time, and the number of frames the line buffers
+	private static final int BLOCK_FRAMES = 256;
+	private static final int LINE_BUFFER_FRAMES = 1024;
+	// The number of requests which can be waiting; must be a power of two
+	private static final int REQUEST_CAPACITY = 256;
+	private static final int REQUEST_MASK = REQUEST_CAPACITY - 1;
+
+	private final SampleBank bank;
+	private final SourceDataLine line;
+
+	// Requests to play sounds, in a circle of slots; see InputQueue
+	private final int[] requestId = new int[REQUEST_CAPACITY];
+	private final float[] requestGain = new float[REQUEST_CAPACITY];
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicLong handled = new AtomicLong();
+	// Set to have the mixer stop every sound playing
+	private volatile boolean stopRequested = false;
+
+	// The sounds playing; only used by the mixer thread. A voice with no samples is free
+	private final short[][] voiceSamples = new short[MAX_VOICES][];
+	private final int[] voicePosition = new int[MAX_VOICES];
+	private final float[] voiceGain = new float[MAX_VOICES];
+
+	// Buffers for mixing into and writing out
+	private final int[] mix = new int[BLOCK_FRAMES * SampleBank.CHANNELS];
+	private final byte[] output = new byte[BLOCK_FRAMES * SampleBank.CHANNELS * 2];
+
+	/**
+	 * Constructor; opens the output line and starts mixing.
+	 * @param bank Where the sounds to be played come from.
+	 * @throws LineUnavailableException If no output line could be opened.
+	 */
+	public SoundMixer(SampleBank bank) throws LineUnavailableException {
+		this.bank = bank;
+
+		AudioFormat format = new AudioFormat(SampleBank.SAMPLE_RATE, 16, SampleBank.CHANNELS, true, false);
+		line = AudioSystem.getSourceDataLine(format);
+		line.open(format, LINE_BUFFER_FRAMES * format.getFrameSize());
+		line.start();
+
+		Thread thread = new Thread(this, "Sound mixer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Starts playing a sound. Should only be called from one thread at a time.
+	 * @param id The id of the sound in the sample bank.
+	 * @param gain The volume to play it at; 1 is as loud as it was recorded.
+	 * @return Whether the sound will be played; false if too many were requested at once.
+	 */
+	public boolean play(int id, float gain){
+		long next = requested.get();
+		if(next - handled.get() >= REQUEST_CAPACITY) return false;
+
+		int slot = (int)(next & REQUEST_MASK);
+		requestId[slot] = id;
+		requestGain[slot] = gain;
+		requested.lazySet(next + 1);
+		return true;
+	}
+
+	/**
+	 * Stops every sound which is playing.
+	 */
+	public void stopAll(){
+		stopRequested = true;
+	}
+
+	/**
+	 * Mixes and plays sounds, forever.
+	 */
+	public void run(){
+		while(true){
+			startRequestedVoices();
+			mixBlock();
+			// Blocks while the line's buffer is full, which is what keeps this in time
+			line.write(output, 0, output.length);
+		}
+	}
+
+	/**
+	 * Starts a voice for each sound requested since the last block.
+	 */
+	private void startRequestedVoices(){
+		if(stopRequested){
+			stopRequested = false;
+			for(int v = 0; v < MAX_VOICES; v++) voiceSamples[v] = null;
+		}
+
+		long next = handled.get();
+		long end = requested.get();
+		for(; next < end; next++){
+			int slot = (int)(next & REQUEST_MASK);
+			short[] samples = bank.get(requestId[slot]);
+			if(samples.length > 0){
+				int v = findVoice();
+				voiceSamples[v] = samples;
+				voicePosition[v] = 0;
+				voiceGain[v] = requestGain[slot];
+			}
+		}
+		handled.lazySet(next);
+	}
+
+	/**
+	 * Returns a free voice, or otherwise the one with the least left to play.
+	 */
+	private int findVoice(){
+		int best = 0;
+		int bestRemaining = Integer.MAX_VALUE;
+		for(int v = 0; v < MAX_VOICES; v++){
+			if(voiceSamples[v] == null) return v;
+
+			int remaining = voiceSamples[v].length - voicePosition[v];
+			if(remaining < bestRemaining){
+				best = v;
+				bestRemaining = remaining;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Mixes the next block of every voice into the output buffer.
+	 */
+	private void mixBlock(){
+		Arrays.fill(mix, 0);
+
+		for(int v = 0; v < MAX_VOICES; v++){
+			short[] samples = voiceSamples[v];
+			if(samples == null) continue;
+
+			int position = voicePosition[v];
+			int count = Math.min(mix.length, samples.length - position);
+			float gain = voiceGain[v];
+			for(int i = 0; i < count; i++){
+				mix[i] += (int)(samples[position + i] * gain);
+			}
+
+			voicePosition[v] = position + count;
+			if(voicePosition[v] >= samples.length) voiceSamples[v] = null;
+		}
+
+		// Clip to 16 bits, little endian
+		for(int i = 0; i < mix.length; i++){
+			int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+			output[2*i] = (byte)value;
+			output[2*i+1] = (byte)(value >> 8);
+		}
+	}
+}
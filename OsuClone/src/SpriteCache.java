@@ -0,0 +1,111 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * The skin images used to draw hit objects, each scaled once to exactly the
+ * size it is drawn at for a game's circle size, so that drawing one every
+ * frame is a plain copy rather than a scale.
+ *
+ * Approach circles shrink smoothly, so they are kept at a set of sizes a few
+ * pixels apart, from the starting approach size down to the circle size, and
+ * drawn at whichever is closest.
+ *
+ * A hit circle's border, overlay and glow are also drawn together into a
+ * single sprite, so a circle is drawn with one copy.
+ *
+ * @author Robert Campbell
+ */
+public class SpriteCache {
+	// The difference in size (px) between neighbouring approach circle sprites
+	private static final int APPROACH_STEP = 2;
+
+	// The size of all circles
+	private final int circleSize;
+
+	// The sprites, at their drawn sizes; a whole hit circle, with all three layers, and the follow circle
+	private final BufferedImage hitCircleSprite;
+	private final BufferedImage followCircleSprite;
+	// Approach circle sprites; the one at i is circleSize + i*APPROACH_STEP across
+	private final BufferedImage[] approachSprites;
+
+	/**
+	 * Constructor; instantiates SpriteCache, scaling every sprite from the skin cache.
+	 * @param circleSize The size of all circles.
+	 * @param approachSize The size that approach circles start at.
+	 */
+	public SpriteCache(int circleSize, int approachSize){
+		this.circleSize = circleSize;
+
+		// Sizes are rounded the same way that circles are positioned, centered on x-circleSize/2
+		int size = circleSize/2*2;
+		hitCircleSprite = compositeHitCircle(
+				scale(SkinCache.get(Options.SKIN_HIT_CIRCLE_BORDER), size),
+				scale(SkinCache.get(Options.SKIN_HIT_CIRCLE_OUTER), circleSize*2),
+				scale(SkinCache.get(Options.SKIN_HIT_CIRCLE), size));
+		followCircleSprite = scale(SkinCache.get(Options.SKIN_SLIDER_FOLLOW_CIRCLE), size);
+
+		BufferedImage approachCircleImage = SkinCache.get(Options.SKIN_APPROACH_CIRCLE);
+		approachSprites = new BufferedImage[Math.max(0, approachSize - circleSize)/APPROACH_STEP + 1];
+		for(int i = 0; i < approachSprites.length; i++){
+			approachSprites[i] = scale(approachCircleImage, circleSize + i*APPROACH_STEP);
+		}
+	}
+
+	/**
+	 * Returns a whole hit circle (border, glow and overlay), twice circleSize
+	 * across so that the glow fits; it should be drawn at x-circleSize, y-circleSize.
+	 */
+	public BufferedImage getHitCircle(){
+		return hitCircleSprite;
+	}
+
+	/**
+	 * Returns the slider follow circle, circleSize across.
+	 */
+	public BufferedImage getFollowCircle(){
+		return followCircleSprite;
+	}
+
+	/**
+	 * Returns the approach circle sprite closest to the given size; it should be
+	 * drawn centered, as its width may differ from the size by a pixel or so.
+	 * @param size The size the approach circle should be drawn at.
+	 */
+	public BufferedImage getApproachCircle(double size){
+		int i = (int)Math.round((size - circleSize)/APPROACH_STEP);
+		if(i < 0) i = 0;
+		else if(i >= approachSprites.length) i = approachSprites.length-1;
+		return approachSprites[i];
+	}
+
+	/**
+	 * Draws the three layers of a hit circle into one sprite, in the order they used to be drawn in.
+	 */
+	private BufferedImage compositeHitCircle(BufferedImage border, BufferedImage outer, BufferedImage circle){
+		BufferedImage sprite = SkinCache.createImage(circleSize*2, circleSize*2);
+		Graphics2D g2d = sprite.createGraphics();
+		int offset = circleSize - circleSize/2;
+		g2d.drawImage(border, offset, offset, null);
+		g2d.drawImage(outer, 0, 0, null);
+		g2d.drawImage(circle, offset, offset, null);
+		g2d.dispose();
+		return sprite;
+	}
+
+	/**
+	 * Returns a copy of an image scaled to the given size across, with smooth
+	 * interpolation as it's only done once; null if the image is missing.
+	 */
+	private static BufferedImage scale(BufferedImage image, int size){
+		if(image == null || size <= 0) return null;
+
+		BufferedImage sprite = SkinCache.createImage(size, size);
+		Graphics2D g2d = sprite.createGraphics();
+		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+		g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+		g2d.drawImage(image, 0, 0, size, size, null);
+		g2d.dispose();
+		return sprite;
+	}
+}
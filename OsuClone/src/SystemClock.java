@@ -0,0 +1,54 @@
+/**
+ * A map clock which simply follows the system clock, from when the map
+ * started, less any time spent paused and plus any time skipped.
+ *
+ * @author Robert Campbell
+ */
+public class SystemClock implements MapClock {
+	// The system time (ns) at which the map started
+	private long startTime;
+	// The total amount of time (ns) which the map has been paused for
+	private long pauseDelay = 0;
+	// The start time (ns) of the current pause; only reliable when the map is paused
+	private long pauseStartTime;
+	// The total amount of time (ms) skipped or corrected
+	private double offset = 0;
+
+	public void start(){
+		startTime = System.nanoTime();
+	}
+
+	public void update(long nanoTime){
+	}
+
+	public double getMapTime(long nanoTime){
+		return (nanoTime - pauseDelay - startTime) / 1e6 + offset;
+	}
+
+	public long getNanoTime(double mapTime){
+		return startTime + pauseDelay + (long)((mapTime - offset) * 1e6);
+	}
+
+	public void pause(){
+		pauseStartTime = System.nanoTime();
+	}
+
+	public void resume(){
+		pauseDelay += System.nanoTime() - pauseStartTime;
+	}
+
+	public void skip(double time){
+		offset += time;
+	}
+
+	/**
+	 * Moves the map time by the given amount (ms); forwards if positive, backwards if negative.
+	 */
+	protected void adjust(double time){
+		offset += time;
+	}
+
+	public String getReport(){
+		return "Map time followed the system clock";
+	}
+}
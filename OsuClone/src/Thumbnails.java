@@ -0,0 +1,181 @@
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Generates and stores downscaled versions of background images, exactly the
+ * size of the window they are drawn in, so that the menu only has to decode a
+ * small image and draw it without scaling.
+ *
+ * Thumbnails are kept in the thumbnail folder given in Options. Each is given
+ * the same modification time as the image it was made from, and is made again
+ * if that image's modification time changes.
+ *
+ * @author Robert Campbell
+ */
+public class Thumbnails {
+	// Makes thumbnails which have been asked for by the menu
+	private static final ExecutorService requestThread = createThread("Thumbnail requests", Thread.NORM_PRIORITY);
+	// Makes thumbnails ahead of time, when nothing else needs doing
+	private static final ExecutorService generatorThread = createThread("Thumbnail generator", Thread.MIN_PRIORITY);
+	// The thumbnails being made right now, and whether each was made; anyone else who needs one waits for it
+	private static final ConcurrentHashMap<File, CompletableFuture<Boolean>> inProgress = new ConcurrentHashMap<File, CompletableFuture<Boolean>>();
+
+	/**
+	 * Creates a single daemon thread to run tasks on.
+	 */
+	private static ExecutorService createThread(final String name, final int priority){
+		return Executors.newSingleThreadExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				thread.setPriority(priority);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Finds the thumbnail of an image, making it first if it doesn't exist or is out of date.
+	 * Falls back to the full image if the thumbnail can't be stored.
+	 * @param fname The filename of the full size image.
+	 * @param width The width of the thumbnail.
+	 * @param height The height of the thumbnail.
+	 * @param onReady Receives the image, or null if there is no such image, on the event dispatch thread.
+	 */
+	public static void request(final String fname, final int width, final int height, final Consumer<BufferedImage> onReady){
+		CompletableFuture.runAsync(() -> {
+			String thumbnail = getThumbnailFile(fname, width, height).getPath();
+			BackgroundCache.request(update(fname, width, height) ? thumbnail : fname, onReady);
+		}, requestThread);
+	}
+
+	/**
+	 * Makes the thumbnail of an image in the background, if it doesn't exist or is
+	 * out of date, so that it is ready by the time it is asked for.
+	 */
+	public static void generate(final String fname, final int width, final int height){
+		generatorThread.execute(new Runnable(){
+			public void run(){
+				update(fname, width, height);
+			}
+		});
+	}
+
+	/**
+	 * Returns the file that the thumbnail of the given size of an image is stored in.
+	 */
+	public static File getThumbnailFile(String fname, int width, int height){
+		// Flatten the path into a file name; the hash keeps apart paths which flatten to the same name
+		String path = new File(fname).getPath();
+		String name = path.replaceAll("[^A-Za-z0-9]+", "_") + "-" + Integer.toHexString(path.hashCode());
+		return new File(Options.THUMBNAIL_FOLDER, name + "-" + width + "x" + height + ".jpg");
+	}
+
+	/**
+	 * Makes the thumbnail of an image if it doesn't exist or is out of date. If
+	 * it's already being made, waits for that instead; but never for any other
+	 * thumbnail, so a request doesn't wait behind the generator's other work.
+	 * @return Whether there is an up to date thumbnail.
+	 */
+	private static boolean update(String fname, int width, int height){
+		File thumbnail = getThumbnailFile(fname, width, height);
+
+		CompletableFuture<Boolean> made = new CompletableFuture<Boolean>();
+		CompletableFuture<Boolean> making = inProgress.putIfAbsent(thumbnail, made);
+		if(making != null) return making.join();
+
+		try{
+			boolean result = make(fname, thumbnail, width, height);
+			made.complete(result);
+			return result;
+		}
+		catch(RuntimeException e){
+			made.completeExceptionally(e);
+			throw e;
+		}
+		finally{
+			inProgress.remove(thumbnail, made);
+		}
+	}
+
+	/**
+	 * Makes the thumbnail of an image in the given file, if it doesn't exist or is out of date.
+	 * @return Whether there is an up to date thumbnail.
+	 */
+	private static boolean make(String fname, File thumbnail, int width, int height){
+		File source = new File(fname);
+
+		if(!source.isFile()) return false;
+		if(thumbnail.isFile() && thumbnail.lastModified() == source.lastModified()) return true;
+
+		try{
+			BufferedImage image = ImageIO.read(source);
+			if(image == null) return false;
+
+			// Draw it exactly as the menu would
+			BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g2d = scaled.createGraphics();
+			g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			drawCovering(g2d, image, width, height, null);
+			g2d.dispose();
+
+			thumbnail.getParentFile().mkdirs();
+			File temp = new File(thumbnail.getPath() + ".tmp");
+			if(!ImageIO.write(scaled, "jpg", temp)) return false;
+			thumbnail.delete();
+			if(!temp.renameTo(thumbnail)) return false;
+			thumbnail.setLastModified(source.lastModified());
+
+			// Don't keep showing the old thumbnail
+			BackgroundCache.remove(thumbnail.getPath());
+			return true;
+		}
+		catch(IOException e){
+			System.err.println("Could not make thumbnail of '"+fname+"'. " + e);
+			return false;
+		}
+	}
+
+	/**
+	 * Draws an image so that it covers an area of the given size; stretched to
+	 * its width if it's narrower than the area, or otherwise cropped around its middle.
+	 */
+	public static void drawCovering(Graphics g, Image image, int width, int height, ImageObserver observer){
+		// Check if the area width or the image width is greater
+		if(width > image.getWidth(observer)){
+			// If the area is bigger, we want to stretch the image such that its width fills the whole width of the area
+			double scaleRatio = width/image.getWidth(observer);
+			// height of the blank space at the top and bottom of the area
+			double blankSpace = (height - image.getHeight(observer)*scaleRatio)/2;
+			if(blankSpace < 0) blankSpace = 0;
+
+			g.drawImage(image, 0, (int)blankSpace, width, height-(int)blankSpace, 0, 0, image.getWidth(observer), image.getHeight(observer), observer);
+		}
+		// If the image is bigger, only use a part of the image
+		else{
+			// We want to get the middle of the background in the middle of the area
+			// So, figure out the middle of the x and y of the picture's area
+			int midPictureX = image.getWidth(observer)/2;
+			int midPictureY = image.getHeight(observer)/2;
+			// And the middle positions of the area
+			int midFrameX = width/2;
+			int midFrameY = height/2;
+
+			g.drawImage(image,0,0,width,height,midPictureX-midFrameX,midPictureY-midFrameY,midPictureX+midFrameX,midPictureY+midFrameY,observer);
+		}
+	}
+}